@@ -16,11 +16,24 @@ package org.xnap.commons.maven.gettext;
  * limitations under the License.
  */
 
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.FileSet;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.cli.CommandLineException;
 import org.codehaus.plexus.util.cli.Commandline;
+import org.codehaus.plexus.util.cli.StreamConsumer;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public abstract class AbstractGettextMojo extends AbstractMojo {
 
@@ -61,6 +74,28 @@ public abstract class AbstractGettextMojo extends AbstractMojo {
     @Parameter(defaultValue = "false")
     protected boolean omitLocation;
 
+    /**
+     * The maximum number of gettext processes that run at the same time
+     * across all modules of the build. Defaults to the number of processors.
+     * The value of the first goal that runs applies to the whole build.
+     */
+    @Parameter(property = "gettext.maxProcesses", defaultValue = "0")
+    protected int maxProcesses;
+
+    /**
+     * Number of seconds after which a gettext process is killed, so a hanging
+     * process does not block the build. 0 disables the timeout.
+     */
+    @Parameter(property = "gettext.processTimeout", defaultValue = "600")
+    protected int processTimeout;
+
+    @Parameter(defaultValue = "${session}", required = true, readonly = true)
+    protected MavenSession session;
+
+    protected ProcessScheduler getScheduler() {
+        return ProcessScheduler.getInstance(session, maxProcesses, getLog());
+    }
+
     protected void addExtraArguments(Commandline cl) {
         if (extraArguments != null) {
             for (String argument : extraArguments) {
@@ -68,4 +103,229 @@ public abstract class AbstractGettextMojo extends AbstractMojo {
             }
         }
     }
+
+    /**
+     * Adds the .java files below <code>root</code> to <code>files</code>.
+     *
+     * @see #addSourceFile(List, List, File, File)
+     */
+    protected static void addJavaFiles(List<File> directories, List<String> files, File root) {
+        DirectoryScanner ds = new DirectoryScanner();
+        ds.setBasedir(root);
+        ds.setIncludes(new String[]{"**/*.java"});
+        ds.scan();
+        for (String file : ds.getIncludedFiles()) {
+            addSourceFile(directories, files, root, new File(root, file));
+        }
+    }
+
+    /**
+     * Adds the files of <code>fileSet</code> to <code>files</code>.
+     *
+     * @see #addSourceFile(List, List, File, File)
+     */
+    protected static void addSourceFiles(List<File> directories, List<String> files, FileSet fileSet)
+            throws MojoExecutionException {
+        if (fileSet == null || fileSet.getDirectory() == null) {
+            return;
+        }
+        File root = new File(fileSet.getDirectory());
+        try {
+            List<File> extraFiles = FileUtils.getFiles(root,
+                    StringUtils.join(fileSet.getIncludes().iterator(), ","),
+                    StringUtils.join(fileSet.getExcludes().iterator(), ","));
+            for (File file : extraFiles) {
+                addSourceFile(directories, files, root, file);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("error finding extra source files", e);
+        }
+    }
+
+    /**
+     * Adds <code>file</code> to <code>files</code> with a path relative to
+     * the first of <code>directories</code> that contains it. If none does,
+     * the path is relative to <code>root</code>, which is added to
+     * <code>directories</code>. xgettext searches these directories for the
+     * files, so the references in the template never depend on where the
+     * project is checked out.
+     *
+     * @param root a directory that contains <code>file</code>
+     */
+    protected static void addSourceFile(List<File> directories, List<String> files, File root, File file) {
+        for (File directory : directories) {
+            String path = getRelativePath(directory, file);
+            if (path != null) {
+                files.add(path);
+                return;
+            }
+        }
+        directories.add(root);
+        files.add(getRelativePath(root, file));
+    }
+
+    /**
+     * @return the path of <code>file</code> relative to <code>base</code>,
+     *         or null if it is not inside <code>base</code>
+     */
+    protected static String getRelativePath(File base, File file) {
+        String prefix = base.getAbsolutePath() + File.separator;
+        String path = file.getAbsolutePath();
+        if (!path.startsWith(prefix)) {
+            return null;
+        }
+        return path.substring(prefix.length()).replace(File.separatorChar, '/');
+    }
+
+    /**
+     * @param output the file xgettext writes the messages to
+     * @param directories the directories xgettext searches for
+     *            <code>files</code>, in order
+     * @return the xgettext command line that extracts the messages of
+     *         <code>files</code>
+     */
+    protected Commandline createXgettextCommandline(String xgettextCmd, String encoding, String keywords,
+                                                    boolean omitHeader, File output, List<File> directories,
+                                                    List<String> files) throws MojoExecutionException {
+        Commandline cl = new Commandline();
+        cl.setExecutable(xgettextCmd);
+        addExtraArguments(cl);
+        cl.createArg().setValue("--from-code=" + encoding);
+        cl.createArg().setValue("--output=" + output.getAbsolutePath());
+        cl.createArg().setValue("--language=Java");
+        cl.createArg().setValue("--sort-output");
+        if (omitHeader) {
+            cl.createArg().setValue("--omit-header");
+        }
+        if (omitLocation) {
+            cl.createArg().setValue("--no-location");
+        }
+        cl.createArg().setLine(keywords);
+        for (File directory : directories) {
+            cl.createArg().setValue("--directory=" + directory.getAbsolutePath());
+        }
+        cl.setWorkingDirectory(directories.get(0).getAbsolutePath());
+
+        try {
+            File listFile = File.createTempFile("maven", null);
+            listFile.deleteOnExit();
+            BufferedWriter writer = new BufferedWriter(new FileWriter(listFile));
+            try {
+                for (String file : files) {
+                    writer.write(file.replace(File.separatorChar, '/'));
+                    writer.newLine();
+                }
+            } finally {
+                writer.close();
+            }
+            cl.createArg().setValue("--files-from=" + listFile.getAbsolutePath());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not create list file.", e);
+        }
+        return cl;
+    }
+
+    /**
+     * @return the msgmerge command line that updates <code>poFile</code>
+     *         with the messages of <code>keys</code>
+     */
+    protected Commandline createMsgmergeCommandline(String msgmergeCmd, String backup, boolean fuzzy,
+                                                    File poFile, File keys) {
+        Commandline cl = new Commandline();
+        cl.setExecutable(msgmergeCmd);
+        addExtraArguments(cl);
+        cl.createArg().setValue("-q");
+        cl.createArg().setValue("-U");
+        cl.createArg().setValue("--backup=" + backup);
+        if (fuzzy) {
+            cl.createArg().setValue("--previous");
+        }
+        if (omitLocation) {
+            cl.createArg().setValue("--no-location");
+        }
+        cl.createArg().setFile(poFile);
+        cl.createArg().setValue(keys.getAbsolutePath());
+        return cl;
+    }
+
+    /**
+     * Runs a gettext process through the scheduler and logs its output.
+     *
+     * @return the exit code
+     */
+    protected int execute(Commandline cl) throws MojoExecutionException {
+        getLog().debug("Executing: " + cl.toString());
+        StreamConsumer out = new LoggerStreamConsumer(getLog(), LoggerStreamConsumer.INFO);
+        StreamConsumer err = new LoggerStreamConsumer(getLog(), LoggerStreamConsumer.WARN);
+        try {
+            return getScheduler().execute(cl, out, err, processTimeout);
+        } catch (CommandLineException e) {
+            throw new MojoExecutionException("Could not execute " + cl.getExecutable() + ".", e);
+        }
+    }
+
+    /**
+     * Fills in messages of the po files from <code>memory</code>, unless it
+     * is null, and updates them with msgmerge.
+     */
+    protected void merge(String msgmergeCmd, String backup, boolean fuzzy, TranslationMemory memory)
+            throws MojoExecutionException {
+        DirectoryScanner ds = new DirectoryScanner();
+        ds.setBasedir(poDirectory);
+        ds.setIncludes(new String[]{"**/*.po"});
+        ds.scan();
+        String[] files = ds.getIncludedFiles();
+
+        File keys = new File(poDirectory, keysFile);
+        if (memory != null) {
+            prefill(files, keys, memory);
+        }
+
+        getLog().info("Invoking msgmerge for po files in '"
+                + poDirectory.getAbsolutePath() + "'.");
+        List<Commandline> commands = new ArrayList<Commandline>();
+        for (String file : files) {
+            getLog().info("Processing " + file);
+            commands.add(createMsgmergeCommandline(msgmergeCmd, backup, fuzzy, new File(poDirectory, file), keys));
+        }
+        getScheduler().executeAll(commands, getLog(), processTimeout);
+        if (!commands.isEmpty()) {
+            getLog().info("Gettext processes: " + getScheduler().getStatistics());
+        }
+    }
+
+    /**
+     * @param directories the directories whose .po files make up the
+     *            translation memory
+     * @param indexFile the file the index is stored in
+     * @return the translation memory, or null if no directories are given
+     */
+    protected TranslationMemory openTranslationMemory(File[] directories, File indexFile)
+            throws MojoExecutionException {
+        if (directories == null || directories.length == 0) {
+            return null;
+        }
+        try {
+            return TranslationMemory.open(indexFile, directories, session, getLog());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not open the translation memory " + indexFile, e);
+        }
+    }
+
+    private void prefill(String[] files, File keys, TranslationMemory memory) throws MojoExecutionException {
+        try {
+            Catalog template = PoParser.parse(keys);
+            for (String file : files) {
+                File poFile = new File(poDirectory, file);
+                Catalog catalog = PoParser.parse(poFile);
+                int filled = memory.prefill(catalog, template, PoParser.getLocale(poFile));
+                if (filled > 0) {
+                    getLog().info("Filled in " + filled + " messages of " + file + " from the translation memory");
+                    PoWriter.write(poFile, catalog.getMessages(), catalog.getCharset());
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not prefill po files from the translation memory", e);
+        }
+    }
 }
@@ -0,0 +1,86 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Base of the goals that extract the messages and merge the po files before
+ * they create the resource bundles, and therefore take the parameters of the
+ * gettext and merge goals in addition to those of the dist goal.
+ */
+public abstract class AbstractUpdateMojo extends DistMojo {
+
+    /**
+     * The encoding of the source Java files. utf-8 is a superset of ascii.
+     */
+    @Parameter(defaultValue = "utf-8", required = true)
+    protected String encoding;
+
+    /**
+     * The keywords the xgettext parser will look for to extract messages. The default value works with libraries that use the _-format method, as
+     * recommended by Gettext documentation.
+     */
+    @Parameter(defaultValue = "-k_ -k_n1,2", required = true)
+    protected String keywords;
+
+    /**
+     * The xgettext command.
+     */
+    @Parameter(defaultValue = "xgettext", required = true)
+    protected String xgettextCmd;
+
+    @Parameter(defaultValue = "false")
+    protected boolean omitHeader;
+
+    /**
+     * The msgmerge command.
+     */
+    @Parameter(defaultValue = "msgmerge")
+    protected String msgmergeCmd;
+
+    /**
+     * The --backup option.
+     * One of: 'none', 'numbered', 'existing', 'simple'
+     */
+    @Parameter(defaultValue = "none")
+    protected String backup;
+
+    /**
+     * Activates fuzzy matching if set to true.
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean fuzzy;
+
+    /**
+     * Directories whose .po files make up a translation memory, e.g. the po
+     * directories of all modules. Before msgmerge runs, untranslated and new
+     * messages are filled in with translations of the same msgctxt and msgid
+     * from the translation memory.
+     */
+    @Parameter
+    protected File[] translationMemory;
+
+    /**
+     * The file the translation memory index is stored in. It is built once
+     * per build and shared by all modules that use the same file.
+     */
+    @Parameter(property = "gettext.translationMemoryFile",
+            defaultValue = "${session.executionRootDirectory}/target/gettext-tm.bin")
+    protected File translationMemoryFile;
+
+}
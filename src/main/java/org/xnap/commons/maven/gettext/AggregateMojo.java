@@ -0,0 +1,163 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Extracts the messages of all projects of the reactor with a single xgettext
+ * run, merges them into the po files of the aggregating project and creates
+ * one set of resource bundles.
+ * <p>
+ * The sourceDirectory and the extraSourceFiles configured for this plugin
+ * are collected from each project. Projects that do not configure a
+ * sourceDirectory contribute their build source directory.
+ */
+@Mojo(name = "aggregate", aggregator = true, threadSafe = true)
+public class AggregateMojo extends AbstractUpdateMojo {
+
+    /**
+     * The artifact ids of the projects whose sources are extracted. All
+     * projects of the reactor are included if not set.
+     */
+    @Parameter
+    protected List<String> modules;
+
+    @Parameter(defaultValue = "${reactorProjects}", required = true, readonly = true)
+    protected List<MavenProject> reactorProjects;
+
+    @Parameter(defaultValue = "${plugin}", required = true, readonly = true)
+    protected PluginDescriptor plugin;
+
+    public void execute() throws MojoExecutionException {
+        List<File> directories = new ArrayList<File>();
+        directories.add(project.getBasedir());
+        List<String> files = new ArrayList<String>();
+        for (MavenProject reactorProject : reactorProjects) {
+            if (modules != null && !modules.isEmpty() && !modules.contains(reactorProject.getArtifactId())) {
+                getLog().debug("Skipping " + reactorProject.getArtifactId());
+                continue;
+            }
+            int count = files.size();
+            addSourceFiles(reactorProject, directories, files);
+            getLog().info("Collected " + (files.size() - count) + " source files of "
+                    + reactorProject.getArtifactId());
+        }
+
+        extract(directories, files);
+        merge(msgmergeCmd, backup, fuzzy, openTranslationMemory(translationMemory, translationMemoryFile));
+        super.execute();
+    }
+
+    private void addSourceFiles(MavenProject reactorProject, List<File> directories, List<String> files)
+            throws MojoExecutionException {
+        File directory = getSourceDirectory(reactorProject);
+        if (directory.isDirectory()) {
+            addJavaFiles(directories, files, directory);
+        }
+
+        Xpp3Dom extraSourceFiles = getConfiguration(reactorProject, "extraSourceFiles");
+        if (extraSourceFiles != null && extraSourceFiles.getChild("directory") != null) {
+            File extraDirectory = resolve(reactorProject, extraSourceFiles.getChild("directory").getValue());
+            try {
+                List<File> extraFiles = FileUtils.getFiles(extraDirectory,
+                        getPatterns(extraSourceFiles.getChild("includes")),
+                        getPatterns(extraSourceFiles.getChild("excludes")));
+                for (File file : extraFiles) {
+                    addSourceFile(directories, files, extraDirectory, file);
+                }
+            } catch (IOException e) {
+                throw new MojoExecutionException("error finding extra source files", e);
+            }
+        }
+    }
+
+    /**
+     * @return the sourceDirectory configured for this plugin in
+     *         <code>reactorProject</code>, or its build source directory
+     */
+    private File getSourceDirectory(MavenProject reactorProject) {
+        Xpp3Dom sourceDirectory = getConfiguration(reactorProject, "sourceDirectory");
+        if (sourceDirectory != null && sourceDirectory.getValue() != null) {
+            return resolve(reactorProject, sourceDirectory.getValue().trim());
+        }
+        return new File(reactorProject.getBuild().getSourceDirectory());
+    }
+
+    private File resolve(MavenProject reactorProject, String path) {
+        File file = new File(path);
+        if (!file.isAbsolute()) {
+            file = new File(reactorProject.getBasedir(), path);
+        }
+        return file;
+    }
+
+    /**
+     * @return the configuration element <code>name</code> of this plugin in
+     *         <code>reactorProject</code>, or null
+     */
+    private Xpp3Dom getConfiguration(MavenProject reactorProject, String name) {
+        Plugin buildPlugin = reactorProject.getPlugin(plugin.getPluginLookupKey());
+        if (buildPlugin == null) {
+            return null;
+        }
+        Xpp3Dom configuration = (Xpp3Dom) buildPlugin.getConfiguration();
+        if (configuration != null && configuration.getChild(name) != null) {
+            return configuration.getChild(name);
+        }
+        for (PluginExecution execution : buildPlugin.getExecutions()) {
+            configuration = (Xpp3Dom) execution.getConfiguration();
+            if (configuration != null && configuration.getChild(name) != null) {
+                return configuration.getChild(name);
+            }
+        }
+        return null;
+    }
+
+    private String getPatterns(Xpp3Dom patterns) {
+        if (patterns == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Xpp3Dom pattern : patterns.getChildren()) {
+            if (sb.length() > 0) {
+                sb.append(",");
+            }
+            sb.append(pattern.getValue());
+        }
+        return sb.toString();
+    }
+
+    private void extract(List<File> directories, List<String> files) throws MojoExecutionException {
+        getLog().info("Invoking xgettext for " + files.size() + " files of " + reactorProjects.size() + " projects.");
+        poDirectory.mkdirs();
+        execute(createXgettextCommandline(xgettextCmd, encoding, keywords, omitHeader,
+                new File(poDirectory, keysFile), directories, files));
+    }
+
+}
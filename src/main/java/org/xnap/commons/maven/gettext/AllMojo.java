@@ -0,0 +1,316 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.model.FileSet;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.DirectoryScanner;
+
+/**
+ * Extracts, merges and compiles messages in a single pass. This is the
+ * equivalent of running the gettext, merge and dist goals, but usually only
+ * xgettext is invoked as a process.
+ * <p>
+ * Catalogs are merged in memory by exact matches of msgctxt and msgid and
+ * passed on to the bundle generation without being read again. Only
+ * catalogs in which msgmerge could find fuzzy matches are merged by
+ * msgmerge. Bundle classes are generated by the plugin generator and
+ * properties files are written directly. Locales are processed in parallel and files are only
+ * written if their content changed.
+ */
+@Mojo(name = "all", defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
+public class AllMojo extends AbstractUpdateMojo {
+
+    /**
+     * An optional set of source files that should be parsed with xgettext.
+     * <pre>
+     * <extraSourceFiles>
+     *   <directory>${basedir}</directory>
+     *   <includes>
+     *      <include>** /*.jsp</include>
+     *    </includes>
+     *    <excludes>
+     *      <exclude>** /*.txt</exclude>
+     *    </excludes>
+     * </extraSourceFiles>
+     * </pre>
+     * Files outside the source directory are referenced relative to this
+     * directory.
+     */
+    @Parameter
+    protected FileSet extraSourceFiles;
+
+    /**
+     * Merges catalogs with msgmerge if translations would become obsolete
+     * while messages are left without translation, so msgmerge can keep
+     * translations of similar messages as fuzzy. If disabled, the number of
+     * such translations is logged as a warning.
+     */
+    @Parameter(property = "gettext.fuzzyMerge", defaultValue = "true")
+    protected boolean fuzzyMerge;
+
+    public void execute() throws MojoExecutionException {
+        if (generator != null && !"plugin".equals(generator)) {
+            throw new MojoExecutionException("The all goal does not support generator '" + generator
+                    + "', it always uses the plugin generator.");
+        }
+        if ("class".equals(outputFormat)) {
+            if (!"2".equals(javaVersion)) {
+                throw new MojoExecutionException("The all goal requires javaVersion 2.");
+            }
+            if (!"hashmap".equals(lookupTable) && !"perfecthash".equals(lookupTable)) {
+                throw new MojoExecutionException("Unknown lookup table: "
+                        + lookupTable + ". Should be 'hashmap' or 'perfecthash'.");
+            }
+        } else if ("properties".equals(outputFormat)) {
+            if (sharedStringPool || messageFormats || !"hashmap".equals(lookupTable)) {
+                throw new MojoExecutionException(
+                        "sharedStringPool, messageFormats and lookupTable require output format 'class'.");
+            }
+        } else {
+            throw new MojoExecutionException("Unknown output format: "
+                    + outputFormat + ". Should be 'class' or 'properties'.");
+        }
+        outputDirectory.mkdirs();
+
+        final File keys = new File(poDirectory, keysFile);
+        extract(keys);
+        final Catalog template;
+        final TranslationMemory memory;
+        try {
+            template = PoParser.parse(keys);
+            memory = openTranslationMemory(translationMemory, translationMemoryFile);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not read " + keys, e);
+        }
+
+        DirectoryScanner ds = new DirectoryScanner();
+        ds.setBasedir(poDirectory);
+        ds.setIncludes(new String[]{"**/*.po"});
+        ds.scan();
+        String[] files = ds.getIncludedFiles();
+
+        Map<String, Catalog> catalogs = new LinkedHashMap<String, Catalog>();
+        Map<String, Catalog> stale = new LinkedHashMap<String, Catalog>();
+        int threads = Math.min(Math.max(1, files.length),
+                maxProcesses > 0 ? maxProcesses : Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Catalog>> futures = new ArrayList<Future<Catalog>>();
+            for (String file : files) {
+                final File poFile = new File(poDirectory, file);
+                futures.add(executor.submit(new Callable<Catalog>() {
+                    public Catalog call() throws Exception {
+                        return process(poFile, keys, template, memory);
+                    }
+                }));
+            }
+            for (int i = 0; i < files.length; i++) {
+                String locale = PoParser.getLocale(new File(files[i]));
+                Catalog catalog = futures.get(i).get();
+                catalogs.put(locale, catalog);
+                if (isNewer(new File(poDirectory, files[i]), getOutputFile(locale))) {
+                    stale.put(locale, catalog);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new MojoExecutionException("Interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Could not process po files", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        if ("class".equals(outputFormat)) {
+            if (sharedStringPool) {
+                // the bundles of a language share a pool, so they are regenerated together
+                stale = new LinkedHashMap<String, Catalog>();
+                for (Map.Entry<String, List<String>> entry : groupByLanguage(files).entrySet()) {
+                    if (isPoolStale(entry.getKey(), entry.getValue())) {
+                        for (String file : entry.getValue()) {
+                            String locale = PoParser.getLocale(new File(file));
+                            stale.put(locale, catalogs.get(locale));
+                        }
+                    }
+                }
+            }
+            if (stale.isEmpty()) {
+                getLog().info("Not compiling, bundles are up-to-date");
+            } else {
+                generateClasses(stale);
+            }
+        }
+        createDefaultBundles();
+        storeKeysDigest();
+    }
+
+    /**
+     * Merges a po file with the template, writes it if it changed and
+     * writes the properties bundle. Catalogs in which msgmerge could find
+     * fuzzy matches are merged by msgmerge instead, unless fuzzyMerge is
+     * disabled.
+     *
+     * @return the merged catalog
+     */
+    private Catalog process(File poFile, File keys, Catalog template, TranslationMemory memory)
+            throws IOException, MojoExecutionException {
+        String locale = PoParser.getLocale(poFile);
+        Catalog catalog = PoParser.parse(poFile);
+        PoMerger merger = new PoMerger(memory);
+        Catalog merged = merger.merge(catalog, template, locale);
+
+        boolean fuzzyMerged = false;
+        if (merger.getObsoleted() > 0 && merger.getUntranslated() > 0) {
+            String counts = merger.getObsoleted() + " translations were dropped and "
+                    + merger.getUntranslated() + " messages have no translation";
+            if (fuzzyMerge) {
+                getLog().info(poFile.getName() + ": " + counts + ", merging with " + msgmergeCmd);
+                merged = msgmerge(poFile, keys, catalog, template, memory, locale);
+                fuzzyMerged = true;
+            } else {
+                getLog().warn(poFile.getName() + ": " + counts
+                        + ", msgmerge might have kept some of them as fuzzy translations");
+            }
+        }
+        if (!fuzzyMerged) {
+            // compares the parsed content, so a file in a different layout than
+            // PoWriter produces is not rewritten unless its messages changed
+            String content = format(merged);
+            boolean changed = !content.equals(format(catalog));
+            if (changed) {
+                writeIfChanged(poFile, content.getBytes(merged.getCharset().name()));
+            }
+            getLog().info(poFile.getName() + ": " + merger.getTranslated() + " translated, "
+                    + merger.getFilled() + " from translation memory, " + merger.getObsoleted() + " obsolete"
+                    + (changed ? "" : ", unchanged"));
+        }
+
+        if ("properties".equals(outputFormat)) {
+            File outputFile = getOutputFile(locale);
+            outputFile.getParentFile().mkdirs();
+            String properties = PropertiesWriter.format(prune(locale, merged.getCompiledMessages()));
+            if (writeIfChanged(outputFile, properties.getBytes("ISO-8859-1"))) {
+                getLog().info("Wrote " + outputFile);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Fills in messages from the translation memory and updates the po file
+     * with msgmerge.
+     *
+     * @return the catalog msgmerge wrote
+     */
+    private Catalog msgmerge(File poFile, File keys, Catalog catalog, Catalog template,
+                             TranslationMemory memory, String locale) throws IOException, MojoExecutionException {
+        if (memory != null && memory.prefill(catalog, template, locale) > 0) {
+            PoWriter.write(poFile, catalog.getMessages(), catalog.getCharset());
+        }
+        int exitCode = execute(createMsgmergeCommandline(msgmergeCmd, backup, fuzzy, poFile, keys));
+        if (exitCode != 0) {
+            throw new MojoExecutionException(msgmergeCmd + " failed with exit code " + exitCode + ".");
+        }
+        return PoParser.parse(poFile);
+    }
+
+    private String format(Catalog catalog) throws IOException {
+        StringWriter out = new StringWriter();
+        PoWriter writer = new PoWriter(out);
+        for (Message message : catalog.getMessages()) {
+            writer.write(message);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Runs xgettext and replaces the template if more than its creation date
+     * changed.
+     */
+    private void extract(File keys) throws MojoExecutionException {
+        getLog().info("Invoking xgettext for Java files in '"
+                + sourceDirectory.getAbsolutePath() + "'.");
+        poDirectory.mkdirs();
+
+        File output;
+        try {
+            output = File.createTempFile(keysFile, ".tmp", poDirectory);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not create temporary file.", e);
+        }
+        try {
+            List<File> directories = new ArrayList<File>();
+            directories.add(sourceDirectory);
+            List<String> files = new ArrayList<String>();
+            addJavaFiles(directories, files, sourceDirectory);
+            addSourceFiles(directories, files, extraSourceFiles);
+            int exitCode = execute(createXgettextCommandline(xgettextCmd, encoding, keywords, omitHeader,
+                    output, directories, files));
+            if (exitCode != 0 || !output.exists()) {
+                throw new MojoExecutionException(xgettextCmd + " failed with exit code " + exitCode + ".");
+            }
+
+            byte[] data = read(output);
+            if (keys.exists() && withoutCreationDate(read(keys)).equals(withoutCreationDate(data))) {
+                getLog().info(keysFile + " is unchanged");
+            } else {
+                writeIfChanged(keys, data);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not write " + keys, e);
+        } finally {
+            output.delete();
+        }
+    }
+
+    /**
+     * @return true, if <code>file</code> was written
+     */
+    private boolean writeIfChanged(File file, byte[] data) throws IOException {
+        if (file.exists() && Arrays.equals(read(file), data)) {
+            return false;
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,836 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PropertyResourceBundle;
+import java.util.ResourceBundle;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.DirectoryScanner;
+
+/**
+ * Measures how the bundles generated by the dist goal behave at runtime: cold
+ * load time, retained heap and lookup throughput and latency under several
+ * threads. Bundles of all output formats found in the output directory are
+ * measured and the results are written as JSON.
+ */
+@Mojo(name = "benchmark")
+public class BenchmarkMojo extends AbstractGettextMojo {
+
+    /**
+     * The package and file name of the generated class or properties files.
+     */
+    @Parameter(required = true)
+    protected String targetBundle;
+
+    /**
+     * The number of threads performing lookups concurrently.
+     */
+    @Parameter(property = "gettext.benchmark.threads", defaultValue = "4")
+    protected int threads;
+
+    /**
+     * The number of milliseconds the throughput and, afterwards, the latency
+     * of lookups are measured after warm-up.
+     */
+    @Parameter(property = "gettext.benchmark.duration", defaultValue = "2000")
+    protected int duration;
+
+    /**
+     * The number of milliseconds of warm-up before each lookup measurement.
+     */
+    @Parameter(property = "gettext.benchmark.warmup", defaultValue = "1000")
+    protected int warmup;
+
+    /**
+     * The number of cold loads per bundle; the median is reported.
+     */
+    @Parameter(property = "gettext.benchmark.loads", defaultValue = "5")
+    protected int loads;
+
+    /**
+     * Also compares the memory footprint and lookup time of the object based
+     * and the compact catalog model for keys.pot and the po files.
+     */
+    @Parameter(property = "gettext.benchmark.catalogs", defaultValue = "false")
+    protected boolean catalogs;
+
+    /**
+     * The JSON file the results are written to.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/gettext-benchmark.json", required = true)
+    protected File benchmarkFile;
+
+    /**
+     * The maximum number of latency samples kept per thread.
+     */
+    private static final int SAMPLES = 1 << 20;
+
+    /**
+     * The number of lookups between two reads of the clock when measuring
+     * throughput.
+     */
+    private static final int BATCH = 256;
+
+    /**
+     * Every n-th lookup is timed when measuring latency, the others keep the
+     * caches in the state of a throughput run.
+     */
+    private static final int SAMPLE_INTERVAL = 8;
+
+    private static volatile int sink;
+
+    public void execute() throws MojoExecutionException {
+        List<Result> results = benchmarkBundles();
+        List<CatalogResult> catalogResults = new ArrayList<CatalogResult>();
+        if (catalogs) {
+            catalogResults = benchmarkCatalogs();
+        }
+
+        if (results.isEmpty() && catalogResults.isEmpty()) {
+            throw new MojoExecutionException("No bundles found for " + targetBundle + ", run the dist goal first.");
+        }
+
+        for (Result result : results) {
+            getLog().info(result.toString());
+        }
+        for (CatalogResult result : catalogResults) {
+            getLog().info(result.toString());
+        }
+        try {
+            writeJson(results, catalogResults);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not write " + benchmarkFile, e);
+        }
+        getLog().info("Wrote results to " + benchmarkFile);
+    }
+
+    private List<Result> benchmarkBundles() throws MojoExecutionException {
+        List<Result> results = new ArrayList<Result>();
+        String basepath = targetBundle.replace('.', File.separatorChar);
+        File bundleDirectory = new File(outputDirectory, basepath).getParentFile();
+        String baseName = new File(basepath).getName();
+        if (bundleDirectory == null || !bundleDirectory.isDirectory()) {
+            return results;
+        }
+
+        DirectoryScanner ds = new DirectoryScanner();
+        ds.setBasedir(bundleDirectory);
+        ds.setIncludes(new String[]{baseName + "_*.class", baseName + "_*.properties"});
+        ds.scan();
+
+        String[] files = ds.getIncludedFiles();
+        Arrays.sort(files);
+        File driverDirectory;
+        try {
+            driverDirectory = compileDriver();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not compile the benchmark driver", e);
+        }
+        for (String file : files) {
+            File bundleFile = new File(bundleDirectory, file);
+            int dot = file.lastIndexOf('.');
+            String locale = file.substring(baseName.length() + 1, dot);
+            String format = file.substring(dot + 1).equals("class") ? "class" : "properties";
+            if (bundleFile.length() == 0 || !isLocale(locale)) {
+                continue;
+            }
+            getLog().info("Benchmarking " + file);
+            try {
+                results.add(benchmark(bundleFile, locale, format, driverDirectory));
+            } catch (Exception e) {
+                throw new MojoExecutionException("Could not benchmark " + file, e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Compares the footprint and lookup time of {@link Catalog} and
+     * {@link CompactCatalog} for the .pot and .po files.
+     */
+    private List<CatalogResult> benchmarkCatalogs() throws MojoExecutionException {
+        List<CatalogResult> results = new ArrayList<CatalogResult>();
+        DirectoryScanner ds = new DirectoryScanner();
+        ds.setBasedir(poDirectory);
+        ds.setIncludes(new String[]{keysFile, "**/*.po"});
+        ds.scan();
+        for (String file : ds.getIncludedFiles()) {
+            final File catalogFile = new File(poDirectory, file);
+            getLog().info("Benchmarking catalog " + file);
+            try {
+                CatalogResult result = new CatalogResult(file);
+                Loader objects = new Loader() {
+                    public Object load() throws Exception {
+                        return PoParser.parse(catalogFile);
+                    }
+                };
+                Loader compact = new Loader() {
+                    public Object load() throws Exception {
+                        return CompactCatalog.parse(catalogFile);
+                    }
+                };
+                result.objectParseNanos = measureLoad(objects);
+                result.compactParseNanos = measureLoad(compact);
+                result.objectBytes = measureRetained(objects);
+                result.compactBytes = measureRetained(compact);
+
+                final Catalog catalog = (Catalog) objects.load();
+                final CompactCatalog compactCatalog = (CompactCatalog) compact.load();
+                final List<Message> messages = new ArrayList<Message>();
+                for (Message message : catalog.getMessages()) {
+                    if (!message.isObsolete()) {
+                        messages.add(message);
+                    }
+                }
+                result.entries = catalog.getMessages().size();
+                if (!messages.isEmpty()) {
+                    result.objectLookupNanos = measureLookups(new Operation() {
+                        public int run(int i) {
+                            return catalog.getMessage(messages.get(i).getKey()).hashCode();
+                        }
+                    }, messages.size());
+                    result.compactLookupNanos = measureLookups(new Operation() {
+                        public int run(int i) {
+                            Message message = messages.get(i);
+                            return compactCatalog.find(message.getMsgctxt(), message.getMsgid());
+                        }
+                    }, messages.size());
+                }
+                results.add(result);
+            } catch (Exception e) {
+                throw new MojoExecutionException("Could not benchmark " + file, e);
+            }
+        }
+        return results;
+    }
+
+    private long measureLoad(Loader loader) throws Exception {
+        long[] times = new long[Math.max(1, loads)];
+        for (int i = 0; i < times.length; i++) {
+            long start = System.nanoTime();
+            sink += loader.load().hashCode();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[times.length / 2];
+    }
+
+    /**
+     * @return the average time of a single threaded lookup of each key after
+     *         warm-up
+     */
+    private long measureLookups(Operation operation, int count) throws Exception {
+        int hash = 0;
+        long warmupEnd = System.nanoTime() + warmup * 1000000L;
+        while (System.nanoTime() < warmupEnd) {
+            for (int i = 0; i < count; i++) {
+                hash += operation.run(i);
+            }
+        }
+        int rounds = 0;
+        long start = System.nanoTime();
+        long end = start + duration * 1000000L;
+        long now;
+        do {
+            for (int i = 0; i < count; i++) {
+                hash += operation.run(i);
+            }
+            rounds++;
+            now = System.nanoTime();
+        } while (now < end);
+        sink += hash;
+        return (now - start) / ((long) rounds * count);
+    }
+
+    private boolean isLocale(String name) {
+        // skips generated helper classes like the string pool
+        return name.matches("[a-z]{2,3}(_[A-Z0-9]{2,3})?(_\\w+)?");
+    }
+
+    private Result benchmark(final File bundleFile, String locale, final String format, File driverDirectory)
+            throws Exception {
+        final String className = targetBundle + "_" + locale;
+        final List<ClassLoader> classLoaders = new ArrayList<ClassLoader>();
+        Loader loader = new Loader() {
+            public Object load() throws Exception {
+                if ("class".equals(format)) {
+                    // the plugin classes are visible to the benchmark driver
+                    URLClassLoader classLoader = new URLClassLoader(new URL[]{outputDirectory.toURI().toURL()},
+                            BenchmarkMojo.class.getClassLoader());
+                    classLoaders.add(classLoader);
+                    return Class.forName(className, true, classLoader).getDeclaredConstructor().newInstance();
+                }
+                InputStream in = new FileInputStream(bundleFile);
+                try {
+                    return new PropertyResourceBundle(in);
+                } finally {
+                    in.close();
+                }
+            }
+        };
+
+        try {
+            Result result = new Result(locale, format);
+
+            result.coldLoadNanos = measureLoad(loader);
+            result.retainedBytes = measureRetained(loader);
+
+            final ResourceBundle bundle = (ResourceBundle) loader.load();
+            final String[] keys = Collections.list(bundle.getKeys()).toArray(new String[0]);
+            result.entries = keys.length;
+            if (keys.length == 0) {
+                return result;
+            }
+
+            result.lookup = measure(new Operation() {
+                public int run(int i) {
+                    return bundle.getObject(keys[(i & Integer.MAX_VALUE) % keys.length]).hashCode();
+                }
+            });
+
+            // getObject returns the singular of plural entries like msgfmt does
+            final Method lookup = getMethod(bundle.getClass(), "lookup", String.class);
+            final Method pluralEval = getMethod(bundle.getClass(), "pluralEval", Long.TYPE);
+            if (lookup == null) {
+                return result;
+            }
+            final List<String> pluralKeys = new ArrayList<String>();
+            for (String key : keys) {
+                if (lookup.invoke(bundle, key) instanceof String[]) {
+                    pluralKeys.add(key);
+                }
+            }
+            if (pluralKeys.isEmpty()) {
+                return result;
+            }
+            final String[] plurals = pluralKeys.toArray(new String[pluralKeys.size()]);
+            final PluralLookup driver = loadDriver(driverDirectory, bundle, classLoaders);
+            if (driver != null) {
+                result.pluralLookupMethod = "lookupPlural";
+                result.pluralLookup = measure(new Operation() {
+                    public int run(int i) {
+                        return driver.lookupPlural(bundle, plurals[(i & Integer.MAX_VALUE) % plurals.length], i)
+                                .hashCode();
+                    }
+                });
+            } else if (pluralEval != null) {
+                // the same calls gettext-commons makes for ngettext
+                result.pluralLookupMethod = "reflection";
+                result.pluralLookup = measure(new Operation() {
+                    public int run(int i) throws Exception {
+                        String[] forms = (String[]) lookup.invoke(bundle, plurals[(i & Integer.MAX_VALUE) % plurals.length]);
+                        long index = ((Long) pluralEval.invoke(null, Long.valueOf(i))).longValue();
+                        return forms[(int) Math.min(index, forms.length - 1)].hashCode();
+                    }
+                });
+            }
+            return result;
+        } finally {
+            close(classLoaders);
+        }
+    }
+
+    /**
+     * Compiles a class that casts bundles to their generated base class and
+     * calls <code>lookupPlural</code> directly, so plural lookups are
+     * measured without reflection and boxing.
+     *
+     * @return the directory of the compiled class, or null if the bundles
+     *         have no base class
+     */
+    private File compileDriver() throws IOException, MojoExecutionException {
+        String baseClass = BundleClassWriter.getBaseClassName(targetBundle);
+        if (!new File(outputDirectory, baseClass.replace('.', File.separatorChar) + ".class").isFile()) {
+            return null;
+        }
+        String driverClass = getDriverClassName();
+        File directory = new File(benchmarkFile.getParentFile(), "gettext-benchmark");
+        File source = new File(directory, driverClass.replace('.', File.separatorChar) + ".java");
+        source.getParentFile().mkdirs();
+        int i = driverClass.lastIndexOf('.');
+        Writer out = new OutputStreamWriter(new FileOutputStream(source), "US-ASCII");
+        try {
+            out.write("/* Automatically generated by gettext-maven-plugin. Do not edit. */\n");
+            if (i != -1) {
+                out.write("package " + driverClass.substring(0, i) + ";\n");
+            }
+            out.write("\npublic class " + driverClass.substring(i + 1) + " implements "
+                    + PluralLookup.class.getName() + " {\n\n");
+            out.write("    public java.lang.String lookupPlural(java.util.ResourceBundle bundle, "
+                    + "java.lang.String msgid, long n) {\n");
+            out.write("        return ((" + baseClass + ") bundle).lookupPlural(msgid, n);\n");
+            out.write("    }\n\n}\n");
+        } finally {
+            out.close();
+        }
+
+        BundleCompiler compiler = new BundleCompiler(getLog(), null);
+        try {
+            File pluginLocation = new File(BenchmarkMojo.class.getProtectionDomain().getCodeSource()
+                    .getLocation().toURI());
+            compiler.setClasspath(Arrays.asList(pluginLocation, outputDirectory));
+        } catch (URISyntaxException e) {
+            throw new IOException("Could not locate the plugin classes: " + e.getMessage());
+        }
+        compiler.compile(Collections.singletonList(source), directory);
+        return directory;
+    }
+
+    private String getDriverClassName() {
+        return targetBundle + "_BenchmarkDriver";
+    }
+
+    /**
+     * @return the driver for the base class of <code>bundle</code>, or null
+     *         if it does not extend the base class
+     */
+    private PluralLookup loadDriver(File driverDirectory, ResourceBundle bundle, List<ClassLoader> classLoaders)
+            throws Exception {
+        if (driverDirectory == null) {
+            return null;
+        }
+        ClassLoader bundleLoader = bundle.getClass().getClassLoader();
+        try {
+            Class<?> base = Class.forName(BundleClassWriter.getBaseClassName(targetBundle), false, bundleLoader);
+            if (!base.isInstance(bundle)) {
+                return null;
+            }
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        // the driver sees the base class of this bundle's class loader
+        URLClassLoader loader = new URLClassLoader(new URL[]{driverDirectory.toURI().toURL()}, bundleLoader);
+        classLoaders.add(loader);
+        return (PluralLookup) loader.loadClass(getDriverClassName()).getDeclaredConstructor().newInstance();
+    }
+
+    private void close(List<ClassLoader> classLoaders) {
+        for (ClassLoader loader : classLoaders) {
+            // URLClassLoader is Closeable since Java 7
+            if (loader instanceof Closeable) {
+                try {
+                    ((Closeable) loader).close();
+                } catch (IOException e) {
+                    getLog().debug(e);
+                }
+            }
+        }
+        classLoaders.clear();
+    }
+
+    private Method getMethod(Class<?> type, String name, Class<?> parameterType) {
+        try {
+            return type.getMethod(name, parameterType);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private long measureRetained(Loader loader) throws Exception {
+        long[] sizes = new long[3];
+        for (int i = 0; i < sizes.length; i++) {
+            long before = usedMemory();
+            Object bundle = loader.load();
+            sizes[i] = usedMemory() - before;
+            sink += bundle.hashCode();
+        }
+        Arrays.sort(sizes);
+        return Math.max(0, sizes[sizes.length / 2]);
+    }
+
+    private long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Measures the throughput of <code>operation</code> in a loop that only
+     * reads the clock once per batch and then its latency from a sample of
+     * individually timed calls, so the cost of timing does not distort the
+     * throughput.
+     */
+    private Measurement measure(Operation operation) throws Exception {
+        Measurement m = new Measurement();
+        m.opsPerSecond = measureThroughput(operation);
+        long[] latencies = measureLatencies(operation);
+        m.p50 = percentile(latencies, 0.5);
+        m.p90 = percentile(latencies, 0.9);
+        m.p99 = percentile(latencies, 0.99);
+        m.p999 = percentile(latencies, 0.999);
+        return m;
+    }
+
+    /**
+     * @return the operations per second of all threads after warm-up
+     */
+    private double measureThroughput(final Operation operation) throws Exception {
+        final long[] counts = new long[threads];
+        final long[] nanos = new long[threads];
+        final long warmupEnd = System.nanoTime() + warmup * 1000000L;
+        final long end = warmupEnd + duration * 1000000L;
+        runThreads(new Task() {
+            public void run(int id) throws Exception {
+                int hash = 0;
+                int i = id;
+                while (System.nanoTime() < warmupEnd) {
+                    for (int b = 0; b < BATCH; b++) {
+                        hash += operation.run(i++);
+                    }
+                }
+                long count = 0;
+                long start = System.nanoTime();
+                long now = start;
+                while (now < end) {
+                    for (int b = 0; b < BATCH; b++) {
+                        hash += operation.run(i++);
+                    }
+                    count += BATCH;
+                    now = System.nanoTime();
+                }
+                sink += hash;
+                counts[id] = count;
+                nanos[id] = now - start;
+            }
+        });
+
+        double opsPerSecond = 0;
+        for (int t = 0; t < threads; t++) {
+            if (nanos[t] > 0) {
+                opsPerSecond += counts[t] * 1e9 / nanos[t];
+            }
+        }
+        return opsPerSecond;
+    }
+
+    /**
+     * @return the sorted latencies of every {@link #SAMPLE_INTERVAL}th call,
+     *         less the cost of reading the clock
+     */
+    private long[] measureLatencies(final Operation operation) throws Exception {
+        final long[][] samples = new long[threads][];
+        final long overhead = getClockOverhead();
+        final long end = System.nanoTime() + duration * 1000000L;
+        runThreads(new Task() {
+            public void run(int id) throws Exception {
+                long[] latencies = new long[SAMPLES];
+                long count = 0;
+                int hash = 0;
+                int i = id;
+                long now;
+                do {
+                    for (int k = 1; k < SAMPLE_INTERVAL; k++) {
+                        hash += operation.run(i++);
+                    }
+                    long start = System.nanoTime();
+                    hash += operation.run(i++);
+                    now = System.nanoTime();
+                    latencies[(int) (count++ % SAMPLES)] = Math.max(0, now - start - overhead);
+                } while (now < end);
+                sink += hash;
+                samples[id] = Arrays.copyOf(latencies, (int) Math.min(count, SAMPLES));
+            }
+        });
+
+        int sampleCount = 0;
+        for (long[] s : samples) {
+            sampleCount += s.length;
+        }
+        long[] all = new long[sampleCount];
+        int pos = 0;
+        for (long[] s : samples) {
+            System.arraycopy(s, 0, all, pos, s.length);
+            pos += s.length;
+        }
+        Arrays.sort(all);
+        return all;
+    }
+
+    /**
+     * @return the median time between two consecutive reads of the clock
+     */
+    private static long getClockOverhead() {
+        long[] times = new long[1001];
+        for (int i = 0; i < times.length; i++) {
+            long start = System.nanoTime();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[times.length / 2];
+    }
+
+    /**
+     * Runs <code>task</code> on {@link #threads} threads that start at the
+     * same time and waits for them to finish.
+     */
+    private void runThreads(final Task task) throws Exception {
+        final Exception[] errors = new Exception[1];
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        task.run(id);
+                    } catch (Exception e) {
+                        synchronized (errors) {
+                            errors[0] = e;
+                        }
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (errors[0] != null) {
+            throw errors[0];
+        }
+    }
+
+    private long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))];
+    }
+
+    private void writeJson(List<Result> results, List<CatalogResult> catalogResults) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"targetBundle\": ").append(quote(targetBundle)).append(",\n");
+        sb.append("  \"threads\": ").append(threads).append(",\n");
+        sb.append("  \"javaVersion\": ").append(quote(System.getProperty("java.version"))).append(",\n");
+        sb.append("  \"formats\": {");
+        List<String> formats = new ArrayList<String>();
+        for (Result result : results) {
+            if (!formats.contains(result.format)) {
+                formats.add(result.format);
+            }
+        }
+        for (int i = 0; i < formats.size(); i++) {
+            String format = formats.get(i);
+            long load = 0;
+            long retained = 0;
+            double throughput = 0;
+            int count = 0;
+            for (Result result : results) {
+                if (result.format.equals(format)) {
+                    load += result.coldLoadNanos;
+                    retained += result.retainedBytes;
+                    throughput += result.lookup != null ? result.lookup.opsPerSecond : 0;
+                    count++;
+                }
+            }
+            sb.append(i > 0 ? ",\n" : "\n");
+            sb.append("    ").append(quote(format)).append(": {\"locales\": ").append(count)
+                    .append(", \"totalColdLoadNanos\": ").append(load)
+                    .append(", \"totalRetainedBytes\": ").append(retained)
+                    .append(", \"meanLookupOpsPerSecond\": ").append(Math.round(throughput / count))
+                    .append("}");
+        }
+        sb.append("\n  },\n");
+        sb.append("  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            sb.append(i > 0 ? ",\n" : "\n");
+            results.get(i).appendJson(sb);
+        }
+        sb.append("\n  ],\n");
+        sb.append("  \"catalogs\": [");
+        for (int i = 0; i < catalogResults.size(); i++) {
+            sb.append(i > 0 ? ",\n" : "\n");
+            catalogResults.get(i).appendJson(sb);
+        }
+        sb.append("\n  ]\n}\n");
+
+        benchmarkFile.getParentFile().mkdirs();
+        Writer out = new OutputStreamWriter(new FileOutputStream(benchmarkFile), "UTF-8");
+        try {
+            out.write(sb.toString());
+        } finally {
+            out.close();
+        }
+    }
+
+    private interface Loader {
+        Object load() throws Exception;
+    }
+
+    private interface Operation {
+        int run(int i) throws Exception;
+    }
+
+    private interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    /**
+     * @return <code>s</code> as a quoted JSON string
+     */
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static class Measurement {
+
+        double opsPerSecond;
+        long p50;
+        long p90;
+        long p99;
+        long p999;
+
+        void appendJson(StringBuilder sb) {
+            sb.append("{\"opsPerSecond\": ").append(Math.round(opsPerSecond))
+                    .append(", \"p50Nanos\": ").append(p50)
+                    .append(", \"p90Nanos\": ").append(p90)
+                    .append(", \"p99Nanos\": ").append(p99)
+                    .append(", \"p999Nanos\": ").append(p999)
+                    .append("}");
+        }
+
+        public String toString() {
+            return Math.round(opsPerSecond) + " ops/s, p50 " + p50 + " ns, p99 " + p99 + " ns";
+        }
+
+    }
+
+    private static class CatalogResult {
+
+        final String file;
+        int entries;
+        long objectParseNanos;
+        long compactParseNanos;
+        long objectBytes;
+        long compactBytes;
+        long objectLookupNanos;
+        long compactLookupNanos;
+
+        CatalogResult(String file) {
+            this.file = file;
+        }
+
+        void appendJson(StringBuilder sb) {
+            sb.append("    {\"file\": ").append(quote(file.replace('\\', '/')))
+                    .append(", \"entries\": ").append(entries)
+                    .append(", \"objectParseNanos\": ").append(objectParseNanos)
+                    .append(", \"compactParseNanos\": ").append(compactParseNanos)
+                    .append(", \"objectRetainedBytes\": ").append(objectBytes)
+                    .append(", \"compactRetainedBytes\": ").append(compactBytes)
+                    .append(", \"objectLookupNanos\": ").append(objectLookupNanos)
+                    .append(", \"compactLookupNanos\": ").append(compactLookupNanos)
+                    .append("}");
+        }
+
+        public String toString() {
+            return file + ": " + entries + " entries, objects " + (objectBytes / 1024) + " KiB, compact "
+                    + (compactBytes / 1024) + " KiB (" + (objectBytes > 0 ? compactBytes * 100 / objectBytes : 0)
+                    + "%), lookup " + objectLookupNanos + " ns vs " + compactLookupNanos + " ns";
+        }
+
+    }
+
+    private static class Result {
+
+        final String locale;
+        final String format;
+        int entries;
+        long coldLoadNanos;
+        long retainedBytes;
+        Measurement lookup;
+        Measurement pluralLookup;
+        String pluralLookupMethod;
+
+        Result(String locale, String format) {
+            this.locale = locale;
+            this.format = format;
+        }
+
+        void appendJson(StringBuilder sb) {
+            sb.append("    {\"locale\": ").append(quote(locale))
+                    .append(", \"format\": ").append(quote(format))
+                    .append(", \"entries\": ").append(entries)
+                    .append(", \"coldLoadNanos\": ").append(coldLoadNanos)
+                    .append(", \"retainedBytes\": ").append(retainedBytes)
+                    .append(", \"lookup\": ");
+            if (lookup != null) {
+                lookup.appendJson(sb);
+            } else {
+                sb.append("null");
+            }
+            sb.append(", \"pluralLookup\": ");
+            if (pluralLookup != null) {
+                pluralLookup.appendJson(sb);
+                sb.append(", \"pluralLookupMethod\": ").append(quote(pluralLookupMethod));
+            } else {
+                sb.append("null");
+            }
+            sb.append("}");
+        }
+
+        public String toString() {
+            return locale + " (" + format + "): " + entries + " entries, cold load "
+                    + (coldLoadNanos / 1000) + " us, retained " + (retainedBytes / 1024) + " KiB"
+                    + (lookup != null ? ", lookup " + lookup : "")
+                    + (pluralLookup != null ? ", plural lookup (" + pluralLookupMethod + ") " + pluralLookup : "");
+        }
+
+    }
+
+}
@@ -0,0 +1,784 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes the Java source of a resource bundle class that is compatible with
+ * the classes generated by <code>msgfmt --java2</code>.
+ * <p>
+ * Unlike msgfmt, the plural expression is compiled into a method returning a
+ * primitive <code>int</code> and <code>pluralEval</code> returns cached
+ * <code>Long</code> instances, so plural lookups do not allocate. The table
+ * is either a HashMap filled on class initialization or a minimal perfect
+ * hash table computed at build time. Optionally, the translations are also
+ * stored as compiled MessageFormat patterns. The bundles of a target bundle
+ * can share a generated base class that declares the plural lookup and
+ * format methods.
+ */
+public class BundleClassWriter {
+
+    /**
+     * The estimated bytecode size of a generated init method, which stays
+     * well below the 64k limit.
+     */
+    private static final int CODE_PER_METHOD = 32000;
+
+    /**
+     * The constant pool entries available for strings in a nested table
+     * class, which leaves room for the other constants below the 64k limit.
+     */
+    private static final int CONSTANTS_PER_TABLE = 50000;
+
+    /**
+     * The maximum number of entries per nested table class. Tables are made
+     * smaller if their strings do not fit into the constant pool.
+     */
+    private static final int MAX_SLOTS_PER_TABLE = 3000;
+
+    /**
+     * The length of the displacement string constants, which stays below
+     * the 64k byte limit for constants with up to 3 bytes per char. Must be
+     * even so both chars of a displacement are in the same constant.
+     */
+    private static final int DISPLACEMENT_CHUNK = 10000;
+
+    private final String className;
+    private final List<Message> messages;
+    private final PluralForms pluralForms;
+    private StringPool stringPool;
+    private String baseClass;
+    private PerfectHash perfectHash;
+    private boolean messageFormats;
+    private int literalCount;
+    private int compiledCount;
+    private int runtimeCount;
+
+    /**
+     * @param className the fully qualified class name, e.g.
+     *                  <code>my.package.Messages_de</code>
+     * @param messages  the messages to include in the bundle
+     */
+    public BundleClassWriter(String className, List<Message> messages, PluralForms pluralForms) {
+        this.className = className;
+        this.messages = messages;
+        this.pluralForms = pluralForms;
+    }
+
+    /**
+     * Makes the class reference strings from <code>stringPool</code> instead
+     * of declaring its own constants.
+     */
+    public void setStringPool(StringPool stringPool) {
+        this.stringPool = stringPool;
+    }
+
+    /**
+     * Makes the class extend a base class written by
+     * {@link #writeBaseClass(String, boolean, File)} instead of
+     * <code>ResourceBundle</code>. Plural lookups and formatting then fall
+     * back to the parent bundle for messages the class does not contain.
+     */
+    public void setBaseClass(String baseClass) {
+        this.baseClass = baseClass;
+    }
+
+    /**
+     * Makes the class use a minimal perfect hash table that is computed at
+     * build time instead of filling a HashMap when the class is loaded.
+     *
+     * @return false, if no perfect hash can be computed, see
+     *         {@link PerfectHash#create(List)}; the HashMap is used in that
+     *         case
+     */
+    public boolean usePerfectHash() {
+        List<String> keys = new ArrayList<String>(messages.size());
+        for (Message message : messages) {
+            keys.add(message.getKey());
+        }
+        perfectHash = keys.isEmpty() ? null : PerfectHash.create(keys);
+        return perfectHash != null;
+    }
+
+    /**
+     * Makes the class store the translations as compiled
+     * {@link MessageFormatPattern MessageFormat patterns} and provide
+     * <code>format</code> methods that substitute arguments without parsing
+     * the pattern.
+     */
+    public void setMessageFormats(boolean messageFormats) {
+        this.messageFormats = messageFormats;
+    }
+
+    /**
+     * @return the number of translations of the last write that are literal
+     *         MessageFormat patterns
+     */
+    public int getLiteralCount() {
+        return literalCount;
+    }
+
+    /**
+     * @return the number of translations of the last write that are
+     *         compiled MessageFormat patterns with arguments
+     */
+    public int getCompiledCount() {
+        return compiledCount;
+    }
+
+    /**
+     * @return the number of translations of the last write that are
+     *         formatted by MessageFormat at runtime
+     */
+    public int getRuntimeCount() {
+        return runtimeCount;
+    }
+
+    /**
+     * @return the source file of the class below <code>directory</code>
+     */
+    public File getSourceFile(File directory) {
+        return getSourceFile(className, directory);
+    }
+
+    private static File getSourceFile(String className, File directory) {
+        return new File(directory, className.replace('.', File.separatorChar) + ".java");
+    }
+
+    /**
+     * Writes the source file below <code>directory</code>.
+     *
+     * @return the written file
+     */
+    public File write(File directory) throws IOException {
+        File file = getSourceFile(directory);
+        PrintWriter out = open(file);
+        try {
+            write(out);
+        } finally {
+            out.close();
+        }
+        if (out.checkError()) {
+            throw new IOException("Could not write " + file);
+        }
+        return file;
+    }
+
+    /**
+     * @return the name of the base class of the bundles of
+     *         <code>targetBundle</code>
+     */
+    public static String getBaseClassName(String targetBundle) {
+        return targetBundle + "_Base";
+    }
+
+    /**
+     * Writes the source file of the base class of the bundles of a target
+     * bundle below <code>directory</code>. Bundles can be cast to it to look
+     * up plural forms and, with <code>messageFormats</code>, format messages
+     * without reflection. Its methods delegate to the parent bundle, so the
+     * bundles call them for messages they do not contain.
+     *
+     * @return the written file
+     */
+    public static File writeBaseClass(String className, boolean messageFormats, File directory) throws IOException {
+        File file = getSourceFile(className, directory);
+        PrintWriter out = open(file);
+        try {
+            int i = className.lastIndexOf('.');
+            String simpleName = className.substring(i + 1);
+
+            out.println("/* Automatically generated by gettext-maven-plugin. Do not edit. */");
+            if (i != -1) {
+                out.println("package " + className.substring(0, i) + ";");
+            }
+            out.println();
+            out.println("public abstract class " + simpleName + " extends java.util.ResourceBundle {");
+            out.println();
+            out.println("    /**");
+            out.println("     * Returns the translation of msgid for n without allocating, or null");
+            out.println("     * if neither this bundle nor its parents contain msgid.");
+            out.println("     */");
+            out.println("    public java.lang.String lookupPlural(java.lang.String msgid, long n) {");
+            out.println("        return parent instanceof " + simpleName);
+            out.println("                ? ((" + simpleName + ") parent).lookupPlural(msgid, n)");
+            out.println("                : null;");
+            out.println("    }");
+            if (messageFormats) {
+                out.println();
+                out.println("    /**");
+                out.println("     * Returns the translation of msgid formatted like java.text.MessageFormat");
+                out.println("     * does, or null if neither this bundle nor its parents contain msgid.");
+                out.println("     */");
+                out.println("    public java.lang.String format(java.lang.String msgid, java.lang.Object... args) {");
+                out.println("        return parent instanceof " + simpleName);
+                out.println("                ? ((" + simpleName + ") parent).format(msgid, args)");
+                out.println("                : null;");
+                out.println("    }");
+                out.println();
+                out.println("    /**");
+                out.println("     * Returns the translation of msgid for n formatted like");
+                out.println("     * java.text.MessageFormat does, or null if neither this bundle nor its");
+                out.println("     * parents contain msgid.");
+                out.println("     */");
+                out.println("    public java.lang.String formatPlural(java.lang.String msgid, long n, java.lang.Object... args) {");
+                out.println("        return parent instanceof " + simpleName);
+                out.println("                ? ((" + simpleName + ") parent).formatPlural(msgid, n, args)");
+                out.println("                : null;");
+                out.println("    }");
+            }
+            out.println();
+            out.println("}");
+        } finally {
+            out.close();
+        }
+        if (out.checkError()) {
+            throw new IOException("Could not write " + file);
+        }
+        return file;
+    }
+
+    private static PrintWriter open(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        return new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "US-ASCII"));
+    }
+
+    private void write(PrintWriter out) {
+        literalCount = 0;
+        compiledCount = 0;
+        runtimeCount = 0;
+        int i = className.lastIndexOf('.');
+        String simpleName = className.substring(i + 1);
+
+        out.println("/* Automatically generated by gettext-maven-plugin. Do not edit. */");
+        if (i != -1) {
+            out.println("package " + className.substring(0, i) + ";");
+        }
+        out.println();
+        out.println("public class " + simpleName + " extends "
+                + (baseClass != null ? baseClass : "java.util.ResourceBundle") + " {");
+        out.println();
+        out.println("    private static final int NPLURALS = " + pluralForms.getCount() + ";");
+        out.println();
+        out.println("    private static final java.lang.Long[] PLURAL_VALUES = new java.lang.Long[NPLURALS];");
+        out.println();
+        out.println("    static {");
+        out.println("        for (int i = 0; i < NPLURALS; i++) {");
+        out.println("            PLURAL_VALUES[i] = java.lang.Long.valueOf(i);");
+        out.println("        }");
+        out.println("    }");
+
+        if (perfectHash != null) {
+            writePerfectHashTable(out);
+        } else {
+            writeHashMapTable(out);
+        }
+
+        out.println();
+        out.println("    public java.lang.Object handleGetObject(java.lang.String msgid) {");
+        out.println("        java.lang.Object value = lookup(msgid);");
+        out.println("        return value instanceof java.lang.String[] ? ((java.lang.String[]) value)[0] : value;");
+        out.println("    }");
+        out.println();
+        out.println("    public java.util.ResourceBundle getParent() {");
+        out.println("        return parent;");
+        out.println("    }");
+        out.println();
+        out.println("    /**");
+        out.println("     * Returns the index of the plural form for n.");
+        out.println("     */");
+        out.println("    public static int pluralIndex(long n) {");
+        out.println("        long index = " + pluralForms.toJava() + ";");
+        out.println("        return index >= 0L && index < NPLURALS ? (int) index : 0;");
+        out.println("    }");
+        out.println();
+        out.println("    public static java.lang.Object pluralEval(long n) {");
+        out.println("        return PLURAL_VALUES[pluralIndex(n)];");
+        out.println("    }");
+        out.println();
+        out.println("    /**");
+        out.println("     * Returns the translation of msgid for n without allocating, or null");
+        out.println("     * if " + getMissingScope() + " msgid.");
+        out.println("     */");
+        out.println("    public java.lang.String lookupPlural(java.lang.String msgid, long n) {");
+        out.println("        java.lang.Object value = lookup(msgid);");
+        out.println("        if (value instanceof java.lang.String[]) {");
+        out.println("            java.lang.String[] forms = (java.lang.String[]) value;");
+        out.println("            int index = pluralIndex(n);");
+        out.println("            return index < forms.length ? forms[index] : forms[0];");
+        out.println("        }");
+        if (baseClass != null) {
+            out.println("        if (value == null) {");
+            out.println("            return super.lookupPlural(msgid, n);");
+            out.println("        }");
+        }
+        out.println("        return (java.lang.String) value;");
+        out.println("    }");
+        if (messageFormats) {
+            writeFormatMethods(out);
+        }
+        out.println();
+        out.println("}");
+    }
+
+    private String getMissingScope() {
+        return baseClass != null ? "neither this bundle nor its parents contain" : "this bundle does not contain";
+    }
+
+    /**
+     * Writes methods that format compiled patterns like MessageFormat does
+     * with simple arguments.
+     */
+    private void writeFormatMethods(PrintWriter out) {
+        out.println();
+        out.println("    /**");
+        out.println("     * Returns the translation of msgid formatted like java.text.MessageFormat");
+        out.println("     * does, or null if " + getMissingScope() + " msgid.");
+        out.println("     */");
+        out.println("    public java.lang.String format(java.lang.String msgid, java.lang.Object... args) {");
+        out.println("        int slot = slot(msgid);");
+        out.println("        return slot < 0 ? " + (baseClass != null ? "super.format(msgid, args)" : "null")
+                + " : format(slot, 0, args);");
+        out.println("    }");
+        out.println();
+        out.println("    /**");
+        out.println("     * Returns the translation of msgid for n formatted like");
+        out.println("     * java.text.MessageFormat does, or null if " + getMissingScope() + " msgid.");
+        out.println("     */");
+        out.println("    public java.lang.String formatPlural(java.lang.String msgid, long n, java.lang.Object... args) {");
+        out.println("        int slot = slot(msgid);");
+        out.println("        return slot < 0 ? " + (baseClass != null ? "super.formatPlural(msgid, n, args)" : "null")
+                + " : format(slot, pluralIndex(n), args);");
+        out.println("    }");
+        out.println();
+        out.println("    private java.lang.String format(int slot, int index, java.lang.Object[] args) {");
+        out.println("        java.lang.Object value = VALUES[slot / SLOTS][slot % SLOTS];");
+        out.println("        java.lang.Object format = FORMATS[slot / SLOTS][slot % SLOTS];");
+        out.println("        if (value instanceof java.lang.String[]) {");
+        out.println("            java.lang.String[] forms = (java.lang.String[]) value;");
+        out.println("            index = index < forms.length ? index : 0;");
+        out.println("            value = forms[index];");
+        out.println("            format = ((java.lang.String[]) format)[index];");
+        out.println("        }");
+        out.println("        if (format == null) {");
+        out.println("            return new java.text.MessageFormat((java.lang.String) value, formatLocale()).format(args);");
+        out.println("        }");
+        out.println("        java.lang.String pattern = (java.lang.String) format;");
+        out.println("        int p = pattern.indexOf('\\uffff');");
+        out.println("        if (p == -1) {");
+        out.println("            return pattern;");
+        out.println("        }");
+        out.println("        java.lang.StringBuilder sb = new java.lang.StringBuilder(pattern.length() + 16);");
+        out.println("        int start = 0;");
+        out.println("        while (p != -1) {");
+        out.println("            sb.append(pattern, start, p);");
+        out.println("            int arg = pattern.charAt(p + 1);");
+        out.println("            if (args == null || arg >= args.length) {");
+        out.println("                sb.append('{').append(arg).append('}');");
+        out.println("            } else {");
+        out.println("                java.lang.Object o = args[arg];");
+        out.println("                if (o instanceof java.lang.String) {");
+        out.println("                    sb.append((java.lang.String) o);");
+        out.println("                } else if (o instanceof java.lang.Number) {");
+        out.println("                    sb.append(java.text.NumberFormat.getInstance(formatLocale()).format(o));");
+        out.println("                } else if (o instanceof java.util.Date) {");
+        out.println("                    sb.append(java.text.DateFormat.getDateTimeInstance(java.text.DateFormat.SHORT,");
+        out.println("                            java.text.DateFormat.SHORT, formatLocale()).format(o));");
+        out.println("                } else {");
+        out.println("                    sb.append(o);");
+        out.println("                }");
+        out.println("            }");
+        out.println("            start = p + 2;");
+        out.println("            p = pattern.indexOf('\\uffff', start);");
+        out.println("        }");
+        out.println("        return sb.append(pattern, start, pattern.length()).toString();");
+        out.println("    }");
+        out.println();
+        out.println("    private java.util.Locale formatLocale() {");
+        out.println("        java.util.Locale locale = getLocale();");
+        out.println("        return locale != null ? locale : java.util.Locale.getDefault();");
+        out.println("    }");
+    }
+
+    private void writeHashMapTable(PrintWriter out) {
+        writeTables(out, messages.toArray(new Message[messages.size()]));
+
+        // the format methods need the slot of a message
+        String type = messageFormats ? "java.lang.Integer" : "java.lang.Object";
+        out.println();
+        out.println("    private static final java.util.HashMap<java.lang.String, " + type + "> table =");
+        out.println("            new java.util.HashMap<java.lang.String, " + type + ">("
+                + (messages.size() * 4 / 3 + 1) + ");");
+        out.println();
+        out.println("    static {");
+        out.println("        for (int i = 0; i < KEYS.length; i++) {");
+        out.println("            for (int j = 0; j < KEYS[i].length; j++) {");
+        if (messageFormats) {
+            out.println("                table.put(KEYS[i][j], java.lang.Integer.valueOf(i * SLOTS + j));");
+        } else {
+            out.println("                table.put(KEYS[i][j], VALUES[i][j]);");
+        }
+        out.println("            }");
+        out.println("        }");
+        out.println("    }");
+        out.println();
+        if (messageFormats) {
+            out.println("    private static int slot(java.lang.String msgid) {");
+            out.println("        java.lang.Integer slot = table.get(msgid);");
+            out.println("        return slot != null ? slot.intValue() : -1;");
+            out.println("    }");
+            out.println();
+            out.println("    public java.lang.Object lookup(java.lang.String msgid) {");
+            out.println("        int slot = slot(msgid);");
+            out.println("        return slot >= 0 ? VALUES[slot / SLOTS][slot % SLOTS] : null;");
+            out.println("    }");
+        } else {
+            out.println("    public java.lang.Object lookup(java.lang.String msgid) {");
+            out.println("        return table.get(msgid);");
+            out.println("    }");
+        }
+        out.println();
+        out.println("    public java.util.Enumeration<java.lang.String> getKeys() {");
+        out.println("        return java.util.Collections.enumeration(table.keySet());");
+        out.println("    }");
+    }
+
+    /**
+     * Writes the entries in the given order into nested table classes that
+     * are small enough for the limits of a class file. The tables are
+     * accessible as <code>KEYS[slot / SLOTS][slot % SLOTS]</code> and
+     * <code>VALUES[slot / SLOTS][slot % SLOTS]</code>. Initializing them
+     * only stores constants.
+     */
+    private void writeTables(PrintWriter out, Message[] slots) {
+        int size = slots.length;
+        int slotsPerTable = getSlotsPerTable(slots);
+        int tables = (size + slotsPerTable - 1) / slotsPerTable;
+
+        out.println();
+        out.println("    private static final int SIZE = " + size + ";");
+        out.println();
+        out.println("    private static final int SLOTS = " + slotsPerTable + ";");
+        out.println();
+        out.println("    private static final java.lang.String[][] KEYS = {");
+        for (int t = 0; t < tables; t++) {
+            out.println("            Table" + t + ".KEYS,");
+        }
+        out.println("    };");
+        out.println();
+        out.println("    private static final java.lang.Object[][] VALUES = {");
+        for (int t = 0; t < tables; t++) {
+            out.println("            Table" + t + ".VALUES,");
+        }
+        out.println("    };");
+        if (messageFormats) {
+            out.println();
+            out.println("    private static final java.lang.Object[][] FORMATS = {");
+            for (int t = 0; t < tables; t++) {
+                out.println("            Table" + t + ".FORMATS,");
+            }
+            out.println("    };");
+        }
+
+        for (int t = 0; t < tables; t++) {
+            int start = t * slotsPerTable;
+            int length = Math.min(size - start, slotsPerTable);
+            out.println();
+            out.println("    private static final class Table" + t + " {");
+            out.println();
+            out.println("        static final java.lang.String[] KEYS = new java.lang.String[" + length + "];");
+            out.println();
+            out.println("        static final java.lang.Object[] VALUES = new java.lang.Object[" + length + "];");
+            out.println();
+            if (messageFormats) {
+                out.println("        static final java.lang.Object[] FORMATS = new java.lang.Object[" + length + "];");
+                out.println();
+            }
+            out.println("        static {");
+            List<Integer> methodStarts = new ArrayList<Integer>();
+            int code = CODE_PER_METHOD;
+            for (int j = 0; j < length; j++) {
+                int entryCode = getCodeSize(slots[start + j]);
+                if (code + entryCode > CODE_PER_METHOD) {
+                    methodStarts.add(j);
+                    code = 0;
+                }
+                code += entryCode;
+            }
+            methodStarts.add(length);
+            for (int m = 0; m < methodStarts.size() - 1; m++) {
+                out.println("            init" + m + "();");
+            }
+            out.println("        }");
+            for (int m = 0; m < methodStarts.size() - 1; m++) {
+                out.println();
+                out.println("        private static void init" + m + "() {");
+                for (int j = methodStarts.get(m); j < methodStarts.get(m + 1); j++) {
+                    Message message = slots[start + j];
+                    out.println("            KEYS[" + j + "] = " + literal(message.getKey()) + ";");
+                    out.println("            VALUES[" + j + "] = " + value(message) + ";");
+                    if (messageFormats) {
+                        out.println("            FORMATS[" + j + "] = " + format(message) + ";");
+                    }
+                }
+                out.println("        }");
+            }
+            out.println("    }");
+        }
+    }
+
+    /**
+     * @return the largest number of entries per table for which the strings
+     *         of each table fit into its constant pool
+     */
+    private int getSlotsPerTable(Message[] slots) {
+        int slotsPerTable = MAX_SLOTS_PER_TABLE;
+        while (slotsPerTable > 1 && !fitsConstantPool(slots, slotsPerTable)) {
+            slotsPerTable = slotsPerTable * 3 / 4;
+        }
+        return slotsPerTable;
+    }
+
+    private boolean fitsConstantPool(Message[] slots, int slotsPerTable) {
+        if (stringPool != null) {
+            // tables only reference the constants of the pool classes
+            return true;
+        }
+        for (int start = 0; start < slots.length; start += slotsPerTable) {
+            Set<String> strings = new HashSet<String>();
+            for (int j = start; j < Math.min(slots.length, start + slotsPerTable); j++) {
+                strings.add(slots[j].getKey());
+                strings.addAll(Arrays.asList(slots[j].getMsgstrPlural()));
+                if (messageFormats) {
+                    for (String form : compileForms(slots[j])) {
+                        if (form != null) {
+                            strings.add(form);
+                        }
+                    }
+                }
+            }
+            // a string constant and its utf8 constant per distinct string
+            if (strings.size() * 2 > CONSTANTS_PER_TABLE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return an upper bound of the bytecode size of the statements that
+     *         initialize the entry of <code>message</code>
+     */
+    private int getCodeSize(Message message) {
+        // getstatic, sipush, value, aastore
+        int statement = 3 + 3 + 1;
+        // ldc_w, or getstatic, sipush and aaload for a pool reference
+        int string = stringPool != null ? 7 : 3;
+        int forms = message.getMsgstrPlural().length;
+        // anewarray with its size, and dup, index and aastore per element
+        int array = 3 + 3 + forms * (1 + 3 + 1);
+        int code = statement + string;
+        code += statement + (message.isPlural() ? array + forms * string : string);
+        if (messageFormats) {
+            code += statement + (message.isPlural() ? array + forms * string : string);
+        }
+        return code;
+    }
+
+    /**
+     * Writes the entries in slot order of the perfect hash. The displacements
+     * are string constants that are decoded on lookup.
+     */
+    private void writePerfectHashTable(PrintWriter out) {
+        Message[] slots = new Message[perfectHash.getSize()];
+        for (Message message : messages) {
+            slots[perfectHash.getSlot(message.getKey())] = message;
+        }
+        writeTables(out, slots);
+
+        out.println();
+        out.println("    private static final int BUCKETS = " + perfectHash.getBucketCount() + ";");
+        out.println();
+        out.println("    private static final int CHUNK = " + DISPLACEMENT_CHUNK + ";");
+        out.println();
+        out.println("    private static final int SEEDED = " + PerfectHash.SEEDED + ";");
+        out.println();
+        out.println("    private static final java.lang.String[] DISPLACEMENTS = {");
+        String data = perfectHash.getDisplacementData();
+        for (int c = 0; c < data.length(); c += DISPLACEMENT_CHUNK) {
+            out.println("            " + quote(data.substring(c, Math.min(data.length(), c + DISPLACEMENT_CHUNK))) + ",");
+        }
+        out.println("    };");
+
+        // must match PerfectHash.mix() and PerfectHash.seededSlot()
+        out.println();
+        out.println("    private static int mix(int h) {");
+        out.println("        h ^= h >>> 16;");
+        out.println("        h *= 0x85ebca6b;");
+        out.println("        h ^= h >>> 13;");
+        out.println("        h *= 0xc2b2ae35;");
+        out.println("        h ^= h >>> 16;");
+        out.println("        return h;");
+        out.println("    }");
+        out.println();
+        out.println("    private static int seededSlot(java.lang.String msgid, int d) {");
+        out.println("        int h = (d + 1) * 0x9e3779b9;");
+        out.println("        for (int i = 0; i < msgid.length(); i++) {");
+        out.println("            h = (h ^ msgid.charAt(i)) * 0x01000193;");
+        out.println("        }");
+        out.println("        return (mix(h) & 0x7fffffff) % SIZE;");
+        out.println("    }");
+        out.println();
+        out.println("    private static int slot(java.lang.String msgid) {");
+        out.println("        int h = msgid.hashCode();");
+        out.println("        int b = ((mix(h) & 0x7fffffff) % BUCKETS) * 2;");
+        out.println("        java.lang.String data = DISPLACEMENTS[b / CHUNK];");
+        out.println("        int d = (data.charAt(b % CHUNK) << 16) | data.charAt(b % CHUNK + 1);");
+        out.println("        int slot;");
+        out.println("        if (d < 0) {");
+        out.println("            slot = -d - 1;");
+        out.println("        } else if ((d & SEEDED) != 0) {");
+        out.println("            // a bucket with equal hash codes");
+        out.println("            slot = seededSlot(msgid, d & ~SEEDED);");
+        out.println("        } else {");
+        out.println("            slot = (mix(h + (d + 1) * 0x9e3779b9) & 0x7fffffff) % SIZE;");
+        out.println("        }");
+        out.println("        return msgid.equals(KEYS[slot / SLOTS][slot % SLOTS]) ? slot : -1;");
+        out.println("    }");
+        out.println();
+        out.println("    public java.lang.Object lookup(java.lang.String msgid) {");
+        out.println("        int slot = slot(msgid);");
+        out.println("        return slot >= 0 ? VALUES[slot / SLOTS][slot % SLOTS] : null;");
+        out.println("    }");
+        out.println();
+        out.println("    public java.util.Enumeration<java.lang.String> getKeys() {");
+        out.println("        return new java.util.Enumeration<java.lang.String>() {");
+        out.println("            private int slot;");
+        out.println();
+        out.println("            public boolean hasMoreElements() {");
+        out.println("                return slot < SIZE;");
+        out.println("            }");
+        out.println();
+        out.println("            public java.lang.String nextElement() {");
+        out.println("                if (slot >= SIZE) {");
+        out.println("                    throw new java.util.NoSuchElementException();");
+        out.println("                }");
+        out.println("                java.lang.String key = KEYS[slot / SLOTS][slot % SLOTS];");
+        out.println("                slot++;");
+        out.println("                return key;");
+        out.println("            }");
+        out.println("        };");
+        out.println("    }");
+    }
+
+    /**
+     * @return the compiled patterns of the translation, with null for
+     *         patterns that are formatted at runtime
+     */
+    private String format(Message message) {
+        if (message.isHeader()) {
+            return "null";
+        }
+        String[] compiled = compileForms(message);
+        for (int i = 0; i < compiled.length; i++) {
+            if (compiled[i] == null) {
+                runtimeCount++;
+            } else if (MessageFormatPattern.isLiteral(compiled[i])) {
+                literalCount++;
+            } else {
+                compiledCount++;
+            }
+        }
+        if (!message.isPlural()) {
+            return compiled[0] == null ? "null" : literal(compiled[0]);
+        }
+        StringBuilder sb = new StringBuilder("new java.lang.String[]{");
+        for (int i = 0; i < compiled.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(compiled[i] == null ? "null" : literal(compiled[i]));
+        }
+        return sb.append("}").toString();
+    }
+
+    /**
+     * @return the compiled patterns of the forms of the translation, null
+     *         for forms that are formatted at runtime
+     */
+    private String[] compileForms(Message message) {
+        String[] forms = message.getMsgstrPlural();
+        String[] compiled = new String[forms.length];
+        for (int i = 0; i < forms.length; i++) {
+            compiled[i] = message.isHeader() ? null : MessageFormatPattern.compile(forms[i]);
+        }
+        return compiled;
+    }
+
+    private String value(Message message) {
+        if (!message.isPlural()) {
+            return literal(message.getMsgstr());
+        }
+        StringBuilder sb = new StringBuilder("new java.lang.String[]{");
+        String[] forms = message.getMsgstrPlural();
+        for (int i = 0; i < forms.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(literal(forms[i]));
+        }
+        return sb.append("}").toString();
+    }
+
+    private String literal(String s) {
+        return stringPool != null ? stringPool.reference(s) : quote(s);
+    }
+
+    /**
+     * @return s as a Java string literal that only contains ascii characters
+     */
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+}
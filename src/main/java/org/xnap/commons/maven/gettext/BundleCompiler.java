@@ -0,0 +1,111 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Compiles generated bundle sources with the compiler of the running JDK.
+ */
+public class BundleCompiler {
+
+    private final Log log;
+    private final String target;
+    private List<File> classpath;
+
+    /**
+     * @param target the -source and -target level of the generated classes,
+     *               or null to use the default of the compiler
+     */
+    public BundleCompiler(Log log, String target) {
+        this.log = log;
+        this.target = target;
+    }
+
+    /**
+     * Sets the classpath the sources are compiled against. By default it is
+     * the classpath of the running JVM.
+     */
+    public void setClasspath(List<File> classpath) {
+        this.classpath = classpath;
+    }
+
+    public void compile(List<File> sources, File outputDirectory) throws MojoExecutionException {
+        if (sources.isEmpty()) {
+            return;
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new MojoExecutionException("No Java compiler available, run Maven with a JDK or set asSource to true.");
+        }
+
+        List<String> options = new ArrayList<String>();
+        options.add("-d");
+        options.add(outputDirectory.getAbsolutePath());
+        options.add("-encoding");
+        options.add("US-ASCII");
+        options.add("-nowarn");
+        if (classpath != null) {
+            StringBuilder sb = new StringBuilder();
+            for (File file : classpath) {
+                if (sb.length() > 0) {
+                    sb.append(File.pathSeparatorChar);
+                }
+                sb.append(file.getAbsolutePath());
+            }
+            options.add("-classpath");
+            options.add(sb.toString());
+        }
+        if (target != null && target.length() > 0) {
+            options.add("-source");
+            options.add(target);
+            options.add("-target");
+            options.add(target);
+        }
+
+        log.info("Compiling " + sources.size() + " resource bundle(s)");
+        StringWriter out = new StringWriter();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            Boolean success = compiler.getTask(out, fileManager, null, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(sources)).call();
+            if (!success.booleanValue()) {
+                throw new MojoExecutionException("Could not compile resource bundles:\n" + out);
+            }
+        } finally {
+            try {
+                fileManager.close();
+            } catch (IOException e) {
+                log.debug(e);
+            }
+        }
+        if (out.getBuffer().length() > 0) {
+            log.debug(out.toString());
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The messages of a .po or .pot file in file order.
+ */
+public class Catalog implements PoParser.Handler {
+
+    private Message header;
+    private List<Message> messages = new ArrayList<Message>();
+    private Map<String, Message> messagesByKey = new LinkedHashMap<String, Message>();
+
+    public void message(Message message) {
+        if (message.isHeader() && !message.isObsolete()) {
+            header = message;
+        }
+        messages.add(message);
+        if (!message.isObsolete()) {
+            messagesByKey.put(message.getKey(), message);
+        }
+    }
+
+    /**
+     * @return the header entry or null, if the catalog does not have one
+     */
+    public Message getHeader() {
+        return header;
+    }
+
+    /**
+     * @return the value of the given header field, e.g. "Plural-Forms", or
+     *         null, if the field is not set
+     */
+    public String getHeaderField(String name) {
+        return header != null ? getHeaderField(header.getMsgstr(), name) : null;
+    }
+
+    /**
+     * @return the value of the given field of the msgstr of a header entry,
+     *         or null, if the field is not set
+     */
+    static String getHeaderField(String header, String name) {
+        for (String line : header.split("\n")) {
+            int i = line.indexOf(':');
+            if (i != -1 && line.substring(0, i).trim().equalsIgnoreCase(name)) {
+                return line.substring(i + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the plural forms declared in the header, or the germanic
+     *         default if there is no declaration
+     */
+    public PluralForms getPluralForms() {
+        String value = getHeaderField("Plural-Forms");
+        return value != null ? PluralForms.parse(value) : PluralForms.GERMANIC;
+    }
+
+    /**
+     * @return the charset declared in the header, or UTF-8 if there is no
+     *         valid declaration
+     */
+    public Charset getCharset() {
+        return header != null ? getCharset(header.getMsgstr()) : Charset.forName("UTF-8");
+    }
+
+    /**
+     * @return the charset declared in the msgstr of a header entry, or UTF-8
+     *         if there is no valid declaration
+     */
+    static Charset getCharset(String header) {
+        String value = getHeaderField(header, "Content-Type");
+        if (value != null && value.contains("charset=")) {
+            try {
+                return Charset.forName(value.substring(value.indexOf("charset=") + 8).trim());
+            } catch (IllegalArgumentException e) {
+                // CHARSET placeholder of templates
+            }
+        }
+        return Charset.forName("UTF-8");
+    }
+
+    /**
+     * @return all messages including the header and obsolete entries
+     */
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return the non-obsolete message with the given key or null
+     * @see Message#getKey()
+     */
+    public Message getMessage(String key) {
+        return messagesByKey.get(key);
+    }
+
+    /**
+     * @return the messages msgfmt compiles: translated entries including the
+     *         header that are neither fuzzy nor obsolete
+     */
+    public List<Message> getCompiledMessages() {
+        List<Message> result = new ArrayList<Message>();
+        for (Message message : messages) {
+            if (!message.isObsolete() && message.isTranslated()
+                    && (message.isHeader() || !message.isFuzzy())) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,892 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A memory efficient alternative to {@link Catalog} for very large catalogs.
+ * <p>
+ * Instead of objects per entry, all text is deduplicated and stored in large
+ * shared char pages. Strings are referenced by int ids and entries are rows
+ * of parallel int arrays. Both strings and entries are indexed by open
+ * addressing hash tables of ints. Entries are addressed by their position in
+ * file order, from 0 to {@link #size()} - 1.
+ */
+public class CompactCatalog implements PoParser.Handler {
+
+    private static final int PAGE_BITS = 20;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final int OBSOLETE = 1;
+
+    /** Id of absent strings, e.g. the msgctxt of most entries. */
+    private static final int NONE = -1;
+
+    // text
+    private char[][] pages = new char[1][];
+    private int pageCount;
+    private int pagePosition = PAGE_SIZE;
+    private int pendingStart;
+    private int pendingLength;
+
+    // strings
+    private int[] stringAddress = new int[1024];
+    private int[] stringLength = new int[1024];
+    private int[] stringHash = new int[1024];
+    private int stringCount;
+    private int[] stringTable = new int[2048];
+
+    // entries
+    private int[] msgctxt = new int[256];
+    private int[] msgid = new int[256];
+    private int[] msgidPlural = new int[256];
+    private int[] msgstrStart = new int[256];
+    private int[] msgstrCount = new int[256];
+    private int[] comments = new int[256];
+    private int[] flags = new int[256];
+    private int size;
+    private int[] entryTable = new int[512];
+
+    private int[] msgstrs = new int[256];
+    private int msgstrTotal;
+
+    private int header = NONE;
+
+    /**
+     * Parses a file into a new compact catalog. The encoding is taken from
+     * the charset declared in the header.
+     */
+    public static CompactCatalog parse(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            byte[] head = new byte[4096];
+            in.mark(head.length);
+            int length = 0;
+            for (int n; length < head.length && (n = in.read(head, length, head.length - length)) != -1; ) {
+                length += n;
+            }
+            in.reset();
+            CompactCatalog catalog = new CompactCatalog();
+            catalog.parse(new InputStreamReader(in, PoParser.getCharset(head, length)), file.getName());
+            return catalog;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Appends the entries read from <code>in</code>. Strings are unquoted
+     * straight into the char pages, no objects are created per entry.
+     *
+     * @param name the name used in error messages
+     */
+    public void parse(Reader in, String name) throws IOException {
+        new Parser(in, name).parse();
+    }
+
+    public void message(Message message) {
+        add(message);
+    }
+
+    /**
+     * Appends a message.
+     *
+     * @return the index of the message
+     */
+    public int add(Message message) {
+        String[] forms = message.getMsgstrPlural();
+        int[] formIds = new int[forms.length];
+        for (int i = 0; i < forms.length; i++) {
+            formIds[i] = intern(forms[i]);
+        }
+        return add(intern(message.getMsgctxt()), intern(message.getMsgid()), intern(message.getMsgidPlural()),
+                formIds, formIds.length,
+                message.getComments().isEmpty() ? NONE : intern(join(message.getComments())),
+                message.isObsolete());
+    }
+
+    private int add(int ctxtId, int idId, int pluralId, int[] forms, int formCount, int commentsId,
+                    boolean obsolete) {
+        if (size == msgid.length) {
+            int capacity = size * 2;
+            msgctxt = Arrays.copyOf(msgctxt, capacity);
+            msgid = Arrays.copyOf(msgid, capacity);
+            msgidPlural = Arrays.copyOf(msgidPlural, capacity);
+            msgstrStart = Arrays.copyOf(msgstrStart, capacity);
+            msgstrCount = Arrays.copyOf(msgstrCount, capacity);
+            comments = Arrays.copyOf(comments, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+        }
+
+        int index = size++;
+        msgctxt[index] = ctxtId;
+        msgid[index] = idId;
+        msgidPlural[index] = pluralId;
+        if (msgstrTotal + formCount > msgstrs.length) {
+            msgstrs = Arrays.copyOf(msgstrs, Math.max(msgstrs.length * 2, msgstrTotal + formCount));
+        }
+        msgstrStart[index] = msgstrTotal;
+        msgstrCount[index] = formCount;
+        System.arraycopy(forms, 0, msgstrs, msgstrTotal, formCount);
+        msgstrTotal += formCount;
+        comments[index] = commentsId;
+        flags[index] = obsolete ? OBSOLETE : 0;
+
+        if (!obsolete) {
+            if (ctxtId == NONE && stringLength[idId] == 0) {
+                header = index;
+            }
+            if (size * 2 > entryTable.length) {
+                rehashEntries(entryTable.length * 2);
+            }
+            insertEntry(index);
+        }
+        return index;
+    }
+
+    private static String join(List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(line);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the number of entries including obsolete ones
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the index of the header entry or -1
+     */
+    public int getHeader() {
+        return header;
+    }
+
+    /**
+     * @return the charset declared in the header, or UTF-8 if there is no
+     *         valid declaration
+     */
+    public Charset getCharset() {
+        return header != NONE ? Catalog.getCharset(getMsgstr(header)) : Charset.forName("UTF-8");
+    }
+
+    /**
+     * @return the index of the non-obsolete entry or -1, if there is none
+     */
+    public int find(String msgctxt, String msgid) {
+        int ctxtId = msgctxt == null ? NONE : findString(msgctxt);
+        int idId = findString(msgid);
+        if (idId == NONE || (msgctxt != null && ctxtId == NONE)) {
+            return NONE;
+        }
+        int mask = entryTable.length - 1;
+        for (int i = entryHash(ctxtId, idId) & mask; entryTable[i] != 0; i = (i + 1) & mask) {
+            int index = entryTable[i] - 1;
+            if (this.msgid[index] == idId && this.msgctxt[index] == ctxtId) {
+                return index;
+            }
+        }
+        return NONE;
+    }
+
+    public String getMsgctxt(int index) {
+        return getString(msgctxt[index]);
+    }
+
+    public String getMsgid(int index) {
+        return getString(msgid[index]);
+    }
+
+    public String getMsgidPlural(int index) {
+        return getString(msgidPlural[index]);
+    }
+
+    public String getMsgstr(int index) {
+        return getString(msgstrs[msgstrStart[index]]);
+    }
+
+    public String[] getMsgstrPlural(int index) {
+        String[] forms = new String[msgstrCount[index]];
+        for (int i = 0; i < forms.length; i++) {
+            forms[i] = getString(msgstrs[msgstrStart[index] + i]);
+        }
+        return forms;
+    }
+
+    public boolean isObsolete(int index) {
+        return (flags[index] & OBSOLETE) != 0;
+    }
+
+    public List<String> getComments(int index) {
+        if (comments[index] == NONE) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(getString(comments[index]).split("\n"));
+    }
+
+    /**
+     * @return a new message object with the data of the entry
+     */
+    public Message getMessage(int index) {
+        Message message = new Message();
+        message.setMsgctxt(getMsgctxt(index));
+        message.setMsgid(getMsgid(index));
+        message.setMsgidPlural(getMsgidPlural(index));
+        message.setMsgstrPlural(getMsgstrPlural(index));
+        message.getComments().addAll(getComments(index));
+        message.setObsolete(isObsolete(index));
+        return message;
+    }
+
+    /**
+     * @return all entries as message objects in file order
+     */
+    public List<Message> getMessages() {
+        List<Message> messages = new ArrayList<Message>(size);
+        for (int i = 0; i < size; i++) {
+            messages.add(getMessage(i));
+        }
+        return messages;
+    }
+
+    /**
+     * Writes the catalog in .po format in the charset declared in the
+     * header. Entries are materialized one at a time.
+     *
+     * @param sorted write the entries in {@link #getSortedOrder()} instead of
+     *               file order
+     */
+    public void write(File file, boolean sorted) throws IOException {
+        int[] order = sorted ? getSortedOrder() : null;
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), getCharset());
+        try {
+            PoWriter writer = new PoWriter(out);
+            for (int i = 0; i < size; i++) {
+                writer.write(getMessage(order != null ? order[i] : i));
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @return the entry indexes sorted by msgctxt and msgid, with the header
+     *         first and obsolete entries last
+     */
+    public int[] getSortedOrder() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int left = 0; left < size; left += width * 2) {
+                int middle = Math.min(left + width, size);
+                int right = Math.min(left + width * 2, size);
+                int i = left;
+                int j = middle;
+                int k = left;
+                while (i < middle && j < right) {
+                    buffer[k++] = compareEntries(order[i], order[j]) <= 0 ? order[i++] : order[j++];
+                }
+                while (i < middle) {
+                    buffer[k++] = order[i++];
+                }
+                while (j < right) {
+                    buffer[k++] = order[j++];
+                }
+            }
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+
+    private int compareEntries(int a, int b) {
+        int result = (flags[a] & OBSOLETE) - (flags[b] & OBSOLETE);
+        if (result == 0) {
+            result = compareStrings(msgctxt[a], msgctxt[b]);
+        }
+        if (result == 0) {
+            result = compareStrings(msgid[a], msgid[b]);
+        }
+        return result;
+    }
+
+    private int compareStrings(int a, int b) {
+        if (a == b) {
+            return 0;
+        } else if (a == NONE) {
+            return -1;
+        } else if (b == NONE) {
+            return 1;
+        }
+        char[] pageA = pages[stringAddress[a] >>> PAGE_BITS];
+        char[] pageB = pages[stringAddress[b] >>> PAGE_BITS];
+        int offsetA = stringAddress[a] & PAGE_MASK;
+        int offsetB = stringAddress[b] & PAGE_MASK;
+        int length = Math.min(stringLength[a], stringLength[b]);
+        for (int i = 0; i < length; i++) {
+            int c = pageA[offsetA + i] - pageB[offsetB + i];
+            if (c != 0) {
+                return c;
+            }
+        }
+        return stringLength[a] - stringLength[b];
+    }
+
+    /**
+     * @return the number of distinct strings
+     */
+    public int getStringCount() {
+        return stringCount;
+    }
+
+    /**
+     * @return the number of chars stored for all distinct strings
+     */
+    public long getCharCount() {
+        long count = 0;
+        for (int i = 0; i < stringCount; i++) {
+            count += stringLength[i];
+        }
+        return count;
+    }
+
+    private String getString(int id) {
+        if (id == NONE) {
+            return null;
+        }
+        if (stringLength[id] == 0) {
+            return "";
+        }
+        int address = stringAddress[id];
+        return new String(pages[address >>> PAGE_BITS], address & PAGE_MASK, stringLength[id]);
+    }
+
+    private int intern(String s) {
+        if (s == null) {
+            return NONE;
+        }
+        int id = findString(s);
+        if (id != NONE) {
+            return id;
+        }
+        startString();
+        for (int i = 0; i < s.length(); i++) {
+            append(s.charAt(i));
+        }
+        return endString();
+    }
+
+    /**
+     * Starts a string that is appended char by char behind the last stored
+     * string and ended by {@link #endString()}.
+     */
+    private void startString() {
+        pendingStart = pagePosition;
+        pendingLength = 0;
+    }
+
+    private void append(char c) {
+        if (pageCount == 0 || pendingStart >= PAGE_SIZE
+                || pendingStart + pendingLength == pages[pageCount - 1].length) {
+            growPending();
+        }
+        pages[pageCount - 1][pendingStart + pendingLength++] = c;
+    }
+
+    /**
+     * Moves the pending string to a new page. Strings never span pages,
+     * strings longer than a page get a page of their own.
+     */
+    private void growPending() {
+        char[] page = new char[Math.max(PAGE_SIZE, pendingLength * 2)];
+        if (pendingLength > 0) {
+            System.arraycopy(pages[pageCount - 1], pendingStart, page, 0, pendingLength);
+        }
+        if (pageCount > 0 && pendingStart == 0) {
+            // the page only holds the pending string
+            pages[pageCount - 1] = page;
+        } else {
+            if (pageCount == pages.length) {
+                pages = Arrays.copyOf(pages, pageCount * 2);
+            }
+            if (pageCount << PAGE_BITS < 0) {
+                throw new IllegalStateException("Catalog exceeds " + Integer.MAX_VALUE + " chars");
+            }
+            pages[pageCount++] = page;
+        }
+        pendingStart = 0;
+        pagePosition = 0;
+    }
+
+    /**
+     * Ends the pending string. Its chars are dropped again if it is already
+     * stored.
+     *
+     * @return the id of the string
+     */
+    private int endString() {
+        int length = pendingLength;
+        char[] page = length > 0 ? pages[pageCount - 1] : null;
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + page[pendingStart + i];
+        }
+        int mask = stringTable.length - 1;
+        for (int i = mix(hash) & mask; stringTable[i] != 0; i = (i + 1) & mask) {
+            int id = stringTable[i] - 1;
+            if (stringHash[id] == hash && equals(id, page, pendingStart, length)) {
+                return id;
+            }
+        }
+
+        if (stringCount == stringAddress.length) {
+            int capacity = stringCount * 2;
+            stringAddress = Arrays.copyOf(stringAddress, capacity);
+            stringLength = Arrays.copyOf(stringLength, capacity);
+            stringHash = Arrays.copyOf(stringHash, capacity);
+        }
+        int id = stringCount++;
+        stringAddress[id] = length > 0 ? ((pageCount - 1) << PAGE_BITS) | pendingStart : 0;
+        stringLength[id] = length;
+        stringHash[id] = hash;
+        if (length > 0) {
+            pagePosition = page.length > PAGE_SIZE ? PAGE_SIZE : pendingStart + length;
+        }
+
+        if (stringCount * 2 > stringTable.length) {
+            int[] table = new int[stringTable.length * 2];
+            for (int i = 0; i < stringCount - 1; i++) {
+                insert(table, stringHash[i], i);
+            }
+            stringTable = table;
+        }
+        insert(stringTable, hash, id);
+        return id;
+    }
+
+    private int findString(String s) {
+        int mask = stringTable.length - 1;
+        int hash = s.hashCode();
+        for (int i = mix(hash) & mask; stringTable[i] != 0; i = (i + 1) & mask) {
+            int id = stringTable[i] - 1;
+            if (stringHash[id] == hash && equals(id, s)) {
+                return id;
+            }
+        }
+        return NONE;
+    }
+
+    private boolean equals(int id, String s) {
+        if (stringLength[id] != s.length()) {
+            return false;
+        }
+        int address = stringAddress[id];
+        char[] page = pages[address >>> PAGE_BITS];
+        int offset = address & PAGE_MASK;
+        for (int i = 0; i < s.length(); i++) {
+            if (page[offset + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean equals(int id, char[] chars, int start, int length) {
+        if (stringLength[id] != length) {
+            return false;
+        }
+        int address = stringAddress[id];
+        char[] page = pages[address >>> PAGE_BITS];
+        int offset = address & PAGE_MASK;
+        for (int i = 0; i < length; i++) {
+            if (page[offset + i] != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void insert(int[] table, int hash, int id) {
+        int mask = table.length - 1;
+        int i = mix(hash) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = id + 1;
+    }
+
+    private void rehashEntries(int capacity) {
+        entryTable = new int[capacity];
+        for (int i = 0; i < size - 1; i++) {
+            if ((flags[i] & OBSOLETE) == 0) {
+                insertEntry(i);
+            }
+        }
+    }
+
+    private void insertEntry(int index) {
+        int mask = entryTable.length - 1;
+        int i = entryHash(msgctxt[index], msgid[index]) & mask;
+        while (entryTable[i] != 0) {
+            int other = entryTable[i] - 1;
+            if (msgid[other] == msgid[index] && msgctxt[other] == msgctxt[index]) {
+                // duplicate entries, the last one wins like in Catalog
+                entryTable[i] = index + 1;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        entryTable[i] = index + 1;
+    }
+
+    private static int entryHash(int ctxtId, int idId) {
+        return mix(ctxtId * 31 + idId);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    /**
+     * Reads .po files like {@link PoParser}, but appends the entries to the
+     * catalog without creating strings or messages.
+     */
+    private class Parser {
+
+        private static final int MSGCTXT = 0;
+        private static final int MSGID = 1;
+        private static final int MSGID_PLURAL = 2;
+        private static final int MSGSTR = 3;
+        private static final int MSGSTR_INDEX = 4;
+
+        private final Reader in;
+        private final String name;
+
+        private final char[] buffer = new char[8192];
+        private int bufferPosition;
+        private int bufferLength;
+        private boolean skipLineFeed;
+        private char[] line = new char[256];
+        private int lineLength;
+        private int lineNumber;
+
+        private boolean inMessage;
+        private boolean pendingComments;
+        private boolean obsolete;
+        private int ctxtId;
+        private int idId;
+        private int pluralId;
+        private int msgstrId;
+        private int commentsId;
+        private int[] forms = new int[4];
+        private int formCount;
+        private int keyword = NONE;
+        private int formIndex;
+
+        Parser(Reader in, String name) {
+            this.in = in;
+            this.name = name;
+        }
+
+        void parse() throws IOException {
+            while (readLine()) {
+                lineNumber++;
+                int start = 0;
+                int end = lineLength;
+                while (start < end && line[start] <= ' ') {
+                    start++;
+                }
+                while (end > start && line[end - 1] <= ' ') {
+                    end--;
+                }
+                boolean obsoleteLine = false;
+                if (end - start >= 2 && line[start] == '#' && line[start + 1] == '~') {
+                    obsoleteLine = true;
+                    start += 2;
+                    while (start < end && line[start] <= ' ') {
+                        start++;
+                    }
+                    if (start < end && (line[start] == '|' || line[start] == '#')) {
+                        // previous msgid or comment of an obsolete entry
+                        continue;
+                    }
+                }
+
+                if (start == end) {
+                    continue;
+                } else if (line[start] == '#') {
+                    flush();
+                    if (pendingComments) {
+                        append('\n');
+                    } else {
+                        startString();
+                        pendingComments = true;
+                    }
+                    for (int i = start; i < end; i++) {
+                        append(line[i]);
+                    }
+                } else if (line[start] == '"') {
+                    if (keyword == NONE) {
+                        throw error("string without keyword");
+                    }
+                    unquote(start, end);
+                } else {
+                    keyword(start, end, obsoleteLine);
+                }
+            }
+            flush();
+        }
+
+        private void keyword(int start, int end, boolean obsoleteLine) throws IOException {
+            int space = start;
+            while (space < end && line[space] != ' ') {
+                space++;
+            }
+            if (space == end) {
+                throw error("missing string");
+            }
+            int kw;
+            int index = 0;
+            if (matches("msgctxt", start, space)) {
+                kw = MSGCTXT;
+            } else if (matches("msgid", start, space)) {
+                kw = MSGID;
+            } else if (matches("msgid_plural", start, space)) {
+                kw = MSGID_PLURAL;
+            } else if (matches("msgstr", start, space)) {
+                kw = MSGSTR;
+            } else if (space - start > 8 && matches("msgstr[", start, start + 7) && line[space - 1] == ']') {
+                kw = MSGSTR_INDEX;
+                for (int i = start + 7; i < space - 1; i++) {
+                    if (line[i] < '0' || line[i] > '9' || index > 0xffff) {
+                        throw error("unknown keyword " + new String(line, start, space - start));
+                    }
+                    index = index * 10 + line[i] - '0';
+                }
+            } else {
+                throw error("unknown keyword " + new String(line, start, space - start));
+            }
+
+            if (kw == MSGCTXT || (kw == MSGID && (!inMessage || idId != NONE))) {
+                flush();
+            }
+            if (!inMessage) {
+                inMessage = true;
+                commentsId = pendingComments ? endString() : NONE;
+                pendingComments = false;
+                ctxtId = NONE;
+                idId = NONE;
+                pluralId = NONE;
+                msgstrId = NONE;
+                formCount = 0;
+            }
+            obsolete = obsoleteLine;
+            endValue();
+            keyword = kw;
+            formIndex = index;
+            startString();
+            start = space + 1;
+            while (start < end && line[start] <= ' ') {
+                start++;
+            }
+            unquote(start, end);
+        }
+
+        private boolean matches(String keyword, int start, int end) {
+            if (end - start != keyword.length()) {
+                return false;
+            }
+            for (int i = 0; i < keyword.length(); i++) {
+                if (line[start + i] != keyword.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void endValue() {
+            if (keyword == NONE) {
+                return;
+            }
+            int id = endString();
+            if (keyword == MSGCTXT) {
+                ctxtId = id;
+            } else if (keyword == MSGID) {
+                idId = id;
+            } else if (keyword == MSGID_PLURAL) {
+                pluralId = id;
+            } else if (keyword == MSGSTR) {
+                msgstrId = id;
+            } else {
+                if (formIndex >= forms.length) {
+                    forms = Arrays.copyOf(forms, Math.max(forms.length * 2, formIndex + 1));
+                }
+                while (formCount <= formIndex) {
+                    forms[formCount++] = NONE;
+                }
+                forms[formIndex] = id;
+            }
+            keyword = NONE;
+        }
+
+        private void flush() throws IOException {
+            if (!inMessage) {
+                return;
+            }
+            endValue();
+            if (idId == NONE) {
+                throw error("missing msgid");
+            }
+            if (formCount == 0) {
+                forms[formCount++] = msgstrId;
+            }
+            for (int i = 0; i < formCount; i++) {
+                if (forms[i] == NONE) {
+                    forms[i] = intern("");
+                }
+            }
+            add(ctxtId, idId, pluralId, forms, formCount, commentsId, obsolete);
+            inMessage = false;
+        }
+
+        /**
+         * Appends the unquoted chars of the string between
+         * <code>start</code> and <code>end</code> to the pending string.
+         */
+        private void unquote(int start, int end) throws IOException {
+            if (end - start < 2 || line[start] != '"' || line[end - 1] != '"') {
+                throw error("invalid string " + new String(line, start, end - start));
+            }
+            int last = end - 1;
+            for (int i = start + 1; i < last; i++) {
+                char c = line[i];
+                if (c != '\\') {
+                    append(c);
+                    continue;
+                }
+                if (++i >= last) {
+                    throw error("invalid escape sequence");
+                }
+                c = line[i];
+                switch (c) {
+                    case 'n': append('\n'); break;
+                    case 't': append('\t'); break;
+                    case 'r': append('\r'); break;
+                    case 'a': append('\007'); break;
+                    case 'b': append('\b'); break;
+                    case 'f': append('\f'); break;
+                    case 'v': append('\013'); break;
+                    case 'x': {
+                        int value = 0;
+                        int digits = 0;
+                        while (i + 1 < last && Character.digit(line[i + 1], 16) != -1) {
+                            value = value * 16 + Character.digit(line[++i], 16);
+                            digits++;
+                        }
+                        if (digits == 0) {
+                            throw error("invalid hex escape");
+                        }
+                        append((char) value);
+                        break;
+                    }
+                    default:
+                        if (c >= '0' && c <= '7') {
+                            int value = c - '0';
+                            for (int digits = 1; digits < 3 && i + 1 < last
+                                    && line[i + 1] >= '0' && line[i + 1] <= '7'; digits++) {
+                                value = value * 8 + line[++i] - '0';
+                            }
+                            append((char) value);
+                        } else {
+                            append(c);
+                        }
+                }
+            }
+        }
+
+        /**
+         * Reads the next line into <code>line</code> without the line
+         * terminator.
+         *
+         * @return false at the end of the input
+         */
+        private boolean readLine() throws IOException {
+            lineLength = 0;
+            boolean read = false;
+            while (true) {
+                if (bufferPosition == bufferLength) {
+                    bufferLength = in.read(buffer);
+                    bufferPosition = 0;
+                    if (bufferLength <= 0) {
+                        bufferLength = 0;
+                        return read;
+                    }
+                }
+                char c = buffer[bufferPosition++];
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (c == '\n') {
+                        continue;
+                    }
+                }
+                if (c == '\n' || c == '\r') {
+                    skipLineFeed = c == '\r';
+                    return true;
+                }
+                read = true;
+                if (lineLength == line.length) {
+                    line = Arrays.copyOf(line, lineLength * 2);
+                }
+                line[lineLength++] = c;
+            }
+        }
+
+        private IOException error(String message) {
+            return new IOException("Syntax error in " + name + ":" + lineNumber + ": " + message);
+        }
+
+    }
+
+}
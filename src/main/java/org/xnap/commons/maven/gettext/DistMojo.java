@@ -17,7 +17,20 @@ package org.xnap.commons.maven.gettext;
  */
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.LocaleUtils;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -26,17 +39,16 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.DirectoryScanner;
-import org.codehaus.plexus.util.cli.CommandLineException;
-import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.cli.Commandline;
-import org.codehaus.plexus.util.cli.StreamConsumer;
 
 /**
  * Generates ressource bundles.
  *
  * @author Tammo van Lessen
  */
-@Mojo(name = "dist", defaultPhase = LifecyclePhase.GENERATE_SOURCES)
+@Mojo(name = "dist", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true)
 public class DistMojo extends AbstractGettextMojo {
 
     /**
@@ -84,13 +96,105 @@ public class DistMojo extends AbstractGettextMojo {
     @Parameter(defaultValue = "false")
     protected boolean asSource;
 
+    /**
+     * The generator of class files, can be "msgfmt" or "plugin". The plugin
+     * generator creates the classes without invoking msgfmt and compiles the
+     * Plural-Forms header into a method that returns a primitive int, so
+     * plural lookups do not allocate. Requires javaVersion "2". The dist goal
+     * uses msgfmt if not set, the all goal only supports the plugin
+     * generator.
+     */
+    @Parameter
+    protected String generator;
+
+    /**
+     * The source and target level for compiling classes created by the plugin
+     * generator. Uses the default of the JDK if not set.
+     */
+    @Parameter(defaultValue = "${maven.compiler.target}")
+    protected String compilerTarget;
+
+    /**
+     * Stores the strings of the locales of each language in shared pool
+     * classes if set to true. Bundles of regional variants, e.g. de_AT, only contain the entries that
+     * differ from the bundle of their language, which is their parent at
+     * runtime. Requires the plugin generator.
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean sharedStringPool;
+
+    /**
+     * The lookup table of classes created by the plugin generator, can be
+     * "hashmap" or "perfecthash". A perfect hash table is computed at build
+     * time, so loading the class does not hash any message and a lookup needs
+     * at most one string comparison.
+     */
+    @Parameter(defaultValue = "hashmap", required = true)
+    protected String lookupTable;
+
+    /**
+     * Analyzes the translations as MessageFormat patterns if set to true.
+     * The classes created by the plugin generator then store the patterns
+     * with quotes resolved and simple arguments like <code>{0}</code>
+     * located, and provide <code>format(String, Object...)</code> and
+     * <code>formatPlural(String, long, Object...)</code> methods that do not
+     * parse the pattern. Patterns with format types fall back to
+     * MessageFormat. Requires the plugin generator.
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean messageFormats;
+
+    /**
+     * Leaves out messages that are not in the keys.pot file if set to true,
+     * so bundles only contain messages that are still used in the source
+     * code. The number of pruned messages is reported for each locale.
+     */
+    @Parameter(property = "gettext.pruneMessages", defaultValue = "false")
+    protected boolean pruneMessages;
+
+    /**
+     * Restricts the messages kept by pruneMessages to messages that are
+     * referenced from files below one of these directories, relative to the
+     * directory xgettext runs in, e.g. <code>com/example/app</code>. Messages
+     * without references are always kept.
+     */
+    @Parameter
+    protected String[] pruneSourceRoots;
+
+    private Set<String> liveKeys;
+
+    private Boolean keysChanged;
+
     public void execute() throws MojoExecutionException {
 
         // create output directory if it doesn't exists
         outputDirectory.mkdirs();
 
+        if (generator == null) {
+            generator = "msgfmt";
+        }
+        if (!"msgfmt".equals(generator) && !"plugin".equals(generator)) {
+            throw new MojoExecutionException("Unknown generator: "
+                    + generator + ". Should be 'msgfmt' or 'plugin'.");
+        }
+        if (!"hashmap".equals(lookupTable) && !"perfecthash".equals(lookupTable)) {
+            throw new MojoExecutionException("Unknown lookup table: "
+                    + lookupTable + ". Should be 'hashmap' or 'perfecthash'.");
+        }
+
         CommandlineFactory cf;
-        if ("class".equals(outputFormat)) {
+        if ("class".equals(outputFormat) && "plugin".equals(generator)) {
+            if (!"2".equals(javaVersion)) {
+                throw new MojoExecutionException("The plugin generator requires javaVersion 2.");
+            }
+            cf = null;
+        } else if (sharedStringPool) {
+            throw new MojoExecutionException("sharedStringPool requires the plugin generator and output format 'class'.");
+        } else if (!"hashmap".equals(lookupTable)) {
+            throw new MojoExecutionException("lookupTable requires the plugin generator and output format 'class'.");
+        } else if (messageFormats) {
+            throw new MojoExecutionException("messageFormats requires the plugin generator and output format 'class'.");
+        } else if ("class".equals(outputFormat)) {
             cf = new MsgFmtCommandlineFactory();
         } else if ("properties".equals(outputFormat)) {
             cf = new MsgCatCommandlineFactory();
@@ -105,6 +209,31 @@ public class DistMojo extends AbstractGettextMojo {
         ds.scan();
 
         String[] files = ds.getIncludedFiles();
+        if (cf == null) {
+            generateClasses(files);
+        } else {
+            runCommands(cf, files);
+        }
+
+        createDefaultBundles();
+        storeKeysDigest();
+    }
+
+    /**
+     * Creates empty bundles for the source locale and the default locale and
+     * registers the output directory as source root.
+     */
+    protected void createDefaultBundles() {
+        String basepath = targetBundle.replace('.', File.separatorChar);
+        getLog().info("Creating resource bundle for source locale");
+        touch(new File(outputDirectory, basepath + "_" + sourceLocale + ".properties"));
+        getLog().info("Creating default resource bundle");
+        touch(new File(outputDirectory, basepath + ".properties"));
+        project.addCompileSourceRoot(outputDirectory.getAbsolutePath());
+    }
+
+    private void runCommands(CommandlineFactory cf, String[] files) throws MojoExecutionException {
+        List<Commandline> commands = new ArrayList<Commandline>();
         for (String file : files) {
             getLog().info("Processing " + file);
 
@@ -116,30 +245,411 @@ public class DistMojo extends AbstractGettextMojo {
                 continue;
             }
 
+            if (pruneMessages) {
+                inputFile = writePrunedFile(file);
+            }
             Commandline cl = cf.createCommandline(inputFile);
             this.addExtraArguments(cl);
-            getLog().debug("Executing: " + cl.toString());
-            StreamConsumer out = new LoggerStreamConsumer(getLog(), LoggerStreamConsumer.INFO);
-            StreamConsumer err = new LoggerStreamConsumer(getLog(), LoggerStreamConsumer.WARN);
+            commands.add(cl);
+        }
+        getScheduler().executeAll(commands, getLog(), processTimeout);
+        if (!commands.isEmpty()) {
+            getLog().info("Gettext processes: " + getScheduler().getStatistics());
+        }
+    }
+
+    /**
+     * Writes a copy of a po file without the messages that are pruned, so it
+     * can be passed to msgfmt or msgcat. The copy has the same name as the
+     * original to keep the locale.
+     */
+    private File writePrunedFile(String file) throws MojoExecutionException {
+        File inputFile = new File(poDirectory, file);
+        File prunedFile = new File(new File(project.getBuild().getDirectory(), "gettext-pruned"), file);
+        prunedFile.getParentFile().mkdirs();
+        try {
+            Catalog catalog = PoParser.parse(inputFile);
+            List<Message> messages = new ArrayList<Message>();
+            for (Message message : catalog.getMessages()) {
+                if (!message.isObsolete()) {
+                    messages.add(message);
+                }
+            }
+            PoWriter.write(prunedFile, prune(PoParser.getLocale(inputFile), messages), catalog.getCharset());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not write " + prunedFile, e);
+        }
+        return prunedFile;
+    }
+
+    /**
+     * @return the messages of <code>locale</code> that are still used, or
+     *         all messages if pruneMessages is not set; the header is always
+     *         kept
+     */
+    protected List<Message> prune(String locale, List<Message> messages) throws MojoExecutionException {
+        if (!pruneMessages) {
+            return messages;
+        }
+        Set<String> live = getLiveKeys();
+        List<Message> result = new ArrayList<Message>(messages.size());
+        int pruned = 0;
+        for (Message message : messages) {
+            if (message.isHeader() || live.contains(message.getKey())) {
+                result.add(message);
+            } else if (message.isTranslated() && !message.isFuzzy()) {
+                pruned++;
+            }
+        }
+        getLog().info(locale + ": pruned " + pruned + " unused messages");
+        return result;
+    }
+
+    /**
+     * @return the keys of the messages in keys.pot, restricted to
+     *         pruneSourceRoots if set
+     */
+    private synchronized Set<String> getLiveKeys() throws MojoExecutionException {
+        if (liveKeys != null) {
+            return liveKeys;
+        }
+        File keys = new File(poDirectory, keysFile);
+        if (!keys.exists()) {
+            throw new MojoExecutionException("pruneMessages requires " + keys + ", run the gettext goal first.");
+        }
+        Catalog template;
+        try {
+            template = PoParser.parse(keys);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not parse " + keys, e);
+        }
+        liveKeys = new HashSet<String>();
+        for (Message message : template.getMessages()) {
+            if (!message.isObsolete() && isReferenced(message)) {
+                liveKeys.add(message.getKey());
+            }
+        }
+        return liveKeys;
+    }
+
+    private boolean isReferenced(Message message) {
+        List<String> references = message.getReferences();
+        if (pruneSourceRoots == null || pruneSourceRoots.length == 0 || references.isEmpty()) {
+            return true;
+        }
+        for (String reference : references) {
+            String path = reference.replace('\\', '/');
+            for (String root : pruneSourceRoots) {
+                String prefix = root.replace('\\', '/');
+                if (!prefix.endsWith("/")) {
+                    prefix += "/";
+                }
+                if (path.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the bundle classes of the plugin generator. Sources are either
+     * written to the output directory or compiled in a single pass. Only the
+     * po files of stale bundles are parsed.
+     */
+    private void generateClasses(String[] files) throws MojoExecutionException {
+        List<String> stale = new ArrayList<String>();
+        if (sharedStringPool) {
+            // the bundles of a language share a pool, so they are regenerated together
+            for (Map.Entry<String, List<String>> entry : groupByLanguage(files).entrySet()) {
+                if (isPoolStale(entry.getKey(), entry.getValue())) {
+                    stale.addAll(entry.getValue());
+                } else {
+                    getLog().info("Not compiling, target is up-to-date: " + getPoolFile(entry.getKey()));
+                }
+            }
+        } else {
+            for (String file : files) {
+                String locale = PoParser.getLocale(new File(poDirectory, file));
+                if (isNewer(new File(poDirectory, file), getOutputFile(locale))) {
+                    stale.add(file);
+                } else {
+                    getLog().info("Not compiling, target is up-to-date: " + getOutputFile(locale));
+                }
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+
+        Map<String, Catalog> catalogs = new LinkedHashMap<String, Catalog>();
+        for (String file : stale) {
+            getLog().info("Processing " + file);
+            File inputFile = new File(poDirectory, file);
             try {
-                CommandLineUtils.executeCommandLine(cl, out, err);
-            } catch (CommandLineException e) {
-                getLog().error("Could not execute " + cl.getExecutable() + ".", e);
+                catalogs.put(PoParser.getLocale(inputFile), PoParser.parse(inputFile));
+            } catch (IOException e) {
+                throw new MojoExecutionException("Could not parse " + file, e);
+            }
+        }
+        generateClasses(catalogs);
+    }
+
+    /**
+     * @return the po files keyed by the language of their locale
+     */
+    protected Map<String, List<String>> groupByLanguage(String[] files) {
+        Map<String, List<String>> languages = new LinkedHashMap<String, List<String>>();
+        for (String file : files) {
+            String language = getLanguage(PoParser.getLocale(new File(poDirectory, file)));
+            List<String> group = languages.get(language);
+            if (group == null) {
+                group = new ArrayList<String>();
+                languages.put(language, group);
             }
+            group.add(file);
         }
+        return languages;
+    }
 
-        String basepath = targetBundle.replace('.', File.separatorChar);
-        getLog().info("Creating resource bundle for source locale");
-        touch(new File(outputDirectory, basepath + "_" + sourceLocale + ".properties"));
-        getLog().info("Creating default resource bundle");
-        touch(new File(outputDirectory, basepath + ".properties"));
-        project.addCompileSourceRoot(outputDirectory.getAbsolutePath());
+    /**
+     * @return true, if one of the po files of <code>language</code> is newer
+     *         than its string pool
+     */
+    protected boolean isPoolStale(String language, List<String> files) throws MojoExecutionException {
+        for (String file : files) {
+            if (isNewer(new File(poDirectory, file), getPoolFile(language))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getLanguage(String locale) {
+        return LocaleUtils.toLocale(locale).getLanguage();
+    }
+
+    /**
+     * @return the class or properties file of the bundle of
+     *         <code>locale</code>
+     */
+    protected File getOutputFile(String locale) {
+        String extension = "properties".equals(outputFormat) ? ".properties" : asSource ? ".java" : ".class";
+        return new File(outputDirectory, (targetBundle + "_" + locale).replace('.', File.separatorChar) + extension);
+    }
+
+    /**
+     * @return the name prefix of the string pool classes of
+     *         <code>language</code>
+     */
+    private String getPoolClassName(String language) {
+        return targetBundle + "_StringPool_" + language + "_";
+    }
+
+    /**
+     * @return the output file of the first class of the string pool of
+     *         <code>language</code>
+     */
+    protected File getPoolFile(String language) {
+        return new File(outputDirectory, (getPoolClassName(language) + "0").replace('.', File.separatorChar)
+                + (asSource ? ".java" : ".class"));
+    }
+
+    /**
+     * @return the name of the class the bundles of the plugin generator
+     *         extend, which declares <code>lookupPlural</code> and the format
+     *         methods
+     */
+    protected String getBaseClassName() {
+        return BundleClassWriter.getBaseClassName(targetBundle);
+    }
+
+    /**
+     * Creates the bundle classes of the given catalogs, which are keyed by
+     * locale, with the plugin generator. The base class is always written.
+     * With shared string pools, all catalogs of a language need to be passed.
+     */
+    protected void generateClasses(Map<String, Catalog> catalogs) throws MojoExecutionException {
+        File sourceDirectory = asSource
+                ? outputDirectory
+                : new File(project.getBuild().getDirectory(), "gettext-sources");
+        Map<String, StringPool> pools = new LinkedHashMap<String, StringPool>();
+
+        List<File> sources = new ArrayList<File>();
+        try {
+            sources.add(BundleClassWriter.writeBaseClass(getBaseClassName(), messageFormats, sourceDirectory));
+            for (Map.Entry<String, Catalog> entry : catalogs.entrySet()) {
+                String locale = entry.getKey();
+                Catalog catalog = entry.getValue();
+                List<Message> messages = prune(locale, catalog.getCompiledMessages());
+                StringPool pool = null;
+                if (sharedStringPool) {
+                    String language = getLanguage(locale);
+                    pool = pools.get(language);
+                    if (pool == null) {
+                        pool = new StringPool(getPoolClassName(language));
+                        pools.put(language, pool);
+                    }
+                    Catalog parent = catalogs.get(language);
+                    if (parent != null && !language.equals(locale)) {
+                        messages = getDifferences(catalog, messages, parent);
+                        getLog().info(locale + ": " + messages.size() + " entries differ from " + language);
+                    }
+                }
+                BundleClassWriter writer = new BundleClassWriter(targetBundle + "_" + locale,
+                        messages, catalog.getPluralForms());
+                writer.setStringPool(pool);
+                writer.setBaseClass(getBaseClassName());
+                writer.setMessageFormats(messageFormats);
+                if ("perfecthash".equals(lookupTable) && !writer.usePerfectHash()) {
+                    getLog().warn(locale + ": no perfect hash found, using a HashMap instead");
+                }
+                sources.add(writer.write(sourceDirectory));
+                if (messageFormats) {
+                    getLog().info(locale + ": " + writer.getLiteralCount() + " literal, " + writer.getCompiledCount()
+                            + " compiled and " + writer.getRuntimeCount() + " runtime formatted patterns");
+                }
+            }
+            for (Map.Entry<String, StringPool> entry : pools.entrySet()) {
+                StringPool pool = entry.getValue();
+                getLog().info("String pool of " + entry.getKey() + ": " + pool.size() + " strings for "
+                        + pool.getReferences() + " references");
+                sources.addAll(pool.write(sourceDirectory));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not generate bundles", e);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException("Could not generate bundles", e);
+        }
+
+        if (!asSource) {
+            new BundleCompiler(getLog(), compilerTarget).compile(sources, outputDirectory);
+        }
     }
 
-    private boolean isNewer(File inputFile, File outputFile) {
+    /**
+     * @return the messages that are missing or translated differently in
+     *         <code>parent</code>; the header is always kept
+     */
+    private List<Message> getDifferences(Catalog catalog, List<Message> messages, Catalog parent) {
+        if (!parent.getPluralForms().toJava().equals(catalog.getPluralForms().toJava())) {
+            return messages;
+        }
+        Map<String, Message> inherited = new HashMap<String, Message>();
+        for (Message message : parent.getCompiledMessages()) {
+            inherited.put(message.getKey(), message);
+        }
+        List<Message> result = new ArrayList<Message>();
+        for (Message message : messages) {
+            Message other = inherited.get(message.getKey());
+            if (message.isHeader() || other == null || message.isPlural() != other.isPlural()
+                    || !Arrays.equals(message.getMsgstrPlural(), other.getMsgstrPlural())) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+    protected boolean isNewer(File inputFile, File outputFile) throws MojoExecutionException {
+        if (pruneMessages && isKeysChanged()) {
+            // the pruned messages changed
+            return true;
+        }
         return inputFile.lastModified() > outputFile.lastModified();
     }
 
+    /**
+     * @return true, if the messages in keys.pot or pruneSourceRoots changed
+     *         since the bundles were last created. The creation date of
+     *         keys.pot is ignored, since xgettext updates it on every run.
+     */
+    private synchronized boolean isKeysChanged() throws MojoExecutionException {
+        if (keysChanged == null) {
+            File digestFile = getKeysDigestFile();
+            try {
+                keysChanged = !digestFile.exists()
+                        || !FileUtils.fileRead(digestFile, "UTF-8").equals(getKeysDigest());
+            } catch (IOException e) {
+                throw new MojoExecutionException("Could not read " + digestFile, e);
+            }
+        }
+        return keysChanged;
+    }
+
+    /**
+     * Stores the digest of keys.pot that the bundles were created from, if
+     * pruneMessages is set.
+     */
+    protected void storeKeysDigest() throws MojoExecutionException {
+        if (!pruneMessages) {
+            return;
+        }
+        File digestFile = getKeysDigestFile();
+        digestFile.getParentFile().mkdirs();
+        try {
+            FileUtils.fileWrite(digestFile, "UTF-8", getKeysDigest());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not write " + digestFile, e);
+        }
+    }
+
+    private File getKeysDigestFile() {
+        return new File(new File(project.getBuild().getDirectory(), "gettext-pruned"), targetBundle + ".digest");
+    }
+
+    private String getKeysDigest() throws MojoExecutionException {
+        File keys = new File(poDirectory, keysFile);
+        if (!keys.exists()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        try {
+            sb.append(withoutCreationDate(read(keys)));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not read " + keys, e);
+        }
+        if (pruneSourceRoots != null) {
+            for (String root : pruneSourceRoots) {
+                sb.append(root).append('\n');
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(sb.toString().getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(Integer.toHexString((b & 0xFF) | 0x100).substring(1));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new MojoExecutionException("Could not compute digest of " + keys, e);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not compute digest of " + keys, e);
+        }
+    }
+
+    /**
+     * @return the content of a po file without the POT-Creation-Date header
+     *         field
+     */
+    protected static String withoutCreationDate(byte[] data) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : new String(data, Charset.forName("ISO-8859-1")).split("\n")) {
+            if (!line.startsWith("\"POT-Creation-Date:")) {
+                sb.append(line).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    protected static byte[] read(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return IOUtil.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
     private void touch(File file) {
         if (!file.exists()) {
             File parent = file.getParentFile();
@@ -165,15 +675,10 @@ public class DistMojo extends AbstractGettextMojo {
 
     private class MsgFmtCommandlineFactory implements CommandlineFactory {
         public File getOutputFile(File input) {
-            String locale = getLocale(input);
+            String locale = PoParser.getLocale(input);
             return new File(outputDirectory, targetBundle.replace('.', File.separatorChar) + "_" + locale + ".class");
         }
 
-        private String getLocale(File file) {
-            String locale = file.getName().substring(0, file.getName().lastIndexOf('.'));
-            return LocaleUtils.toLocale(locale).toString();
-        }
-
         public Commandline createCommandline(File file) {
             Commandline cl = new Commandline();
             cl.setExecutable(msgfmtCmd);
@@ -189,7 +694,7 @@ public class DistMojo extends AbstractGettextMojo {
             cl.createArg().setValue("-r");
             cl.createArg().setValue(targetBundle);
             cl.createArg().setValue("-l");
-            cl.createArg().setValue(getLocale(file));
+            cl.createArg().setValue(PoParser.getLocale(file));
             if (asSource) {
                 cl.createArg().setValue("--source");
             }
@@ -16,11 +16,8 @@ package org.xnap.commons.maven.gettext;
  * limitations under the License.
  */
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.maven.model.FileSet;
@@ -28,19 +25,12 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.codehaus.plexus.util.DirectoryScanner;
-import org.codehaus.plexus.util.FileUtils;
-import org.codehaus.plexus.util.StringUtils;
-import org.codehaus.plexus.util.cli.CommandLineException;
-import org.codehaus.plexus.util.cli.CommandLineUtils;
-import org.codehaus.plexus.util.cli.Commandline;
-import org.codehaus.plexus.util.cli.StreamConsumer;
 
 /**
  * Invokes xgettext to extract messages from source code and store them in the
  * keys.pot file.
  */
-@Mojo(name = "gettext", defaultPhase = LifecyclePhase.GENERATE_RESOURCES)
+@Mojo(name = "gettext", defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
 public class GettextMojo extends AbstractGettextMojo {
 
     /**
@@ -75,6 +65,8 @@ public class GettextMojo extends AbstractGettextMojo {
      *    </excludes>
      * </extraSourceFiles>
      * </pre>
+     * Files outside the source directory are referenced relative to this
+     * directory.
      */
     @Parameter
     protected FileSet extraSourceFiles;
@@ -86,93 +78,14 @@ public class GettextMojo extends AbstractGettextMojo {
         getLog().info("Invoking xgettext for Java files in '"
                 + sourceDirectory.getAbsolutePath() + "'.");
 
-        Commandline cl = new Commandline();
-        cl.setExecutable(xgettextCmd);
-        addExtraArguments(cl);
-        cl.createArg().setValue("--from-code=" + encoding);
-        cl.createArg().setValue("--output=" + new File(poDirectory, keysFile).getAbsolutePath());
-        cl.createArg().setValue("--language=Java");
-        cl.createArg().setValue("--sort-output");
-        if (omitHeader) {
-            cl.createArg().setValue("--omit-header");
-        }
-        if (omitLocation) {
-            cl.createArg().setValue("--no-location");
-        }
-        //cl.createArg().setValue("--join-existing");
-        cl.createArg().setLine(keywords);
-        cl.setWorkingDirectory(sourceDirectory.getAbsolutePath());
-
-        DirectoryScanner ds = new DirectoryScanner();
-        ds.setBasedir(sourceDirectory);
-        ds.setIncludes(new String[]{"**/*.java"});
-        ds.scan();
-        String[] files = ds.getIncludedFiles();
-        List<String> fileNameList = Collections.emptyList();
-        if (extraSourceFiles != null && extraSourceFiles.getDirectory() != null) {
-            try {
-                fileNameList = FileUtils.getFileNames(new File(extraSourceFiles.getDirectory()),
-                        StringUtils.join(extraSourceFiles.getIncludes().iterator(), ","),
-                        StringUtils.join(extraSourceFiles.getExcludes().iterator(), ","), false);
-            } catch (IOException e) {
-                throw new MojoExecutionException("error finding extra source files", e);
-            }
-        }
-
-        File file = createListFile(files, fileNameList);
-        if (file != null) {
-            cl.createArg().setValue("--files-from=" + file.getAbsolutePath());
-        } else {
-            for (String file1 : files) {
-                cl.createArg().setValue(getAbsolutePath(file1));
-            }
-        }
-
-        getLog().debug("Executing: " + cl.toString());
-        StreamConsumer out = new LoggerStreamConsumer(getLog(), LoggerStreamConsumer.INFO);
-        StreamConsumer err = new LoggerStreamConsumer(getLog(), LoggerStreamConsumer.WARN);
-        try {
-            CommandLineUtils.executeCommandLine(cl, out, err);
-        } catch (CommandLineException e) {
-            throw new MojoExecutionException("Could not execute " + xgettextCmd + ".", e);
-        }
-    }
-
-    private File createListFile(String[] files, List<String> fileList) {
-        try {
-            File listFile = File.createTempFile("maven", null);
-            listFile.deleteOnExit();
-
-            BufferedWriter writer = new BufferedWriter(new FileWriter(listFile));
-            try {
-                for (String file : files) {
-                    writer.write(toUnixPath(file));
-                    writer.newLine();
-                }
-                for (String file : fileList) {
-                    writer.write(toUnixPath(file));
-                    writer.newLine();
-                }
-            } finally {
-                writer.close();
-            }
-
-            return listFile;
-        } catch (IOException e) {
-            getLog().error("Could not create list file.", e);
-            return null;
-        }
-    }
-
-    private String getAbsolutePath(String path) {
-        return sourceDirectory.getAbsolutePath() + File.separator + path;
-    }
-
-    private String toUnixPath(String path) {
-        if (File.separatorChar != '/') {
-            return path.replace(File.separatorChar, '/');
-        }
-        return path;
+        List<File> directories = new ArrayList<File>();
+        directories.add(sourceDirectory);
+        List<String> files = new ArrayList<String>();
+        addJavaFiles(directories, files, sourceDirectory);
+        addSourceFiles(directories, files, extraSourceFiles);
+        execute(createXgettextCommandline(xgettextCmd, encoding, keywords, omitHeader,
+                new File(poDirectory, keysFile), directories, files));
+        getLog().debug("Gettext processes: " + getScheduler().getStatistics());
     }
 
 }
@@ -23,18 +23,13 @@ import org.apache.maven.plugins.annotations.Execute;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.codehaus.plexus.util.DirectoryScanner;
-import org.codehaus.plexus.util.cli.CommandLineException;
-import org.codehaus.plexus.util.cli.CommandLineUtils;
-import org.codehaus.plexus.util.cli.Commandline;
-import org.codehaus.plexus.util.cli.StreamConsumer;
 
 /**
  * Invokes the gettext:gettext goal and invokes msgmerge to update po files.
  *
  * @author Tammo van Lessen
  */
-@Mojo(name = "merge", defaultPhase = LifecyclePhase.GENERATE_RESOURCES)
+@Mojo(name = "merge", defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
 @Execute(goal = "gettext")
 public class MergeMojo extends AbstractGettextMojo {
 
@@ -57,40 +52,25 @@ public class MergeMojo extends AbstractGettextMojo {
     @Parameter(defaultValue = "false")
     protected boolean fuzzy;
 
-    public void execute() throws MojoExecutionException {
-        getLog().info("Invoking msgmerge for po files in '"
-                + poDirectory.getAbsolutePath() + "'.");
+    /**
+     * Directories whose .po files make up a translation memory, e.g. the po
+     * directories of all modules. Before msgmerge runs, untranslated and new
+     * messages are filled in with translations of the same msgctxt and msgid
+     * from the translation memory.
+     */
+    @Parameter
+    protected File[] translationMemory;
 
-        DirectoryScanner ds = new DirectoryScanner();
-        ds.setBasedir(poDirectory);
-        ds.setIncludes(new String[]{"**/*.po"});
-        ds.scan();
-        String[] files = ds.getIncludedFiles();
-        for (int i = 0; i < files.length; i++) {
-            getLog().info("Processing " + files[i]);
-            Commandline cl = new Commandline();
-            cl.setExecutable(msgmergeCmd);
-            addExtraArguments(cl);
-            cl.createArg().setValue("-q");
-            cl.createArg().setValue("-U");
-            cl.createArg().setValue("--backup=" + backup);
-            if (fuzzy) {
-                cl.createArg().setValue("--previous");
-            }
-            if (omitLocation) {
-                cl.createArg().setValue("--no-location");
-            }
-            cl.createArg().setFile(new File(poDirectory, files[i]));
-            cl.createArg().setValue(new File(poDirectory, keysFile).getAbsolutePath());
+    /**
+     * The file the translation memory index is stored in. It is built once
+     * per build and shared by all modules that use the same file.
+     */
+    @Parameter(property = "gettext.translationMemoryFile",
+            defaultValue = "${session.executionRootDirectory}/target/gettext-tm.bin")
+    protected File translationMemoryFile;
 
-            getLog().debug("Executing: " + cl.toString());
-            StreamConsumer out = new LoggerStreamConsumer(getLog(), LoggerStreamConsumer.INFO);
-            StreamConsumer err = new LoggerStreamConsumer(getLog(), LoggerStreamConsumer.WARN);
-            try {
-                CommandLineUtils.executeCommandLine(cl, out, err);
-            } catch (CommandLineException e) {
-                getLog().error("Could not execute " + msgmergeCmd + ".", e);
-            }
-        }
+    public void execute() throws MojoExecutionException {
+        merge(msgmergeCmd, backup, fuzzy, openTranslationMemory(translationMemory, translationMemoryFile));
     }
+
 }
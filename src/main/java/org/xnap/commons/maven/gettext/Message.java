@@ -0,0 +1,149 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single entry of a .po or .pot file.
+ */
+public class Message {
+
+    /**
+     * Separates msgctxt and msgid in lookup keys, as done by msgfmt.
+     */
+    public static final String CONTEXT_GLUE = "\u0004";
+
+    private String msgctxt;
+    private String msgid;
+    private String msgidPlural;
+    private String[] msgstr = new String[]{""};
+    private List<String> comments = new ArrayList<String>();
+    private boolean obsolete;
+
+    /**
+     * @return the lookup key of this message, i.e. the msgid prefixed by the
+     *         msgctxt if there is one
+     */
+    public String getKey() {
+        return msgctxt == null ? msgid : msgctxt + CONTEXT_GLUE + msgid;
+    }
+
+    public String getMsgctxt() {
+        return msgctxt;
+    }
+
+    public void setMsgctxt(String msgctxt) {
+        this.msgctxt = msgctxt;
+    }
+
+    public String getMsgid() {
+        return msgid;
+    }
+
+    public void setMsgid(String msgid) {
+        this.msgid = msgid;
+    }
+
+    public String getMsgidPlural() {
+        return msgidPlural;
+    }
+
+    public void setMsgidPlural(String msgidPlural) {
+        this.msgidPlural = msgidPlural;
+    }
+
+    /**
+     * @return the translation, or the first plural form for plural messages
+     */
+    public String getMsgstr() {
+        return msgstr[0];
+    }
+
+    public void setMsgstr(String msgstr) {
+        this.msgstr = new String[]{msgstr};
+    }
+
+    /**
+     * @return all plural forms of the translation
+     */
+    public String[] getMsgstrPlural() {
+        return msgstr;
+    }
+
+    public void setMsgstrPlural(String[] msgstr) {
+        this.msgstr = msgstr;
+    }
+
+    /**
+     * @return the raw comment lines preceding this entry, including the
+     *         leading <code>#</code>
+     */
+    public List<String> getComments() {
+        return comments;
+    }
+
+    public boolean isObsolete() {
+        return obsolete;
+    }
+
+    public void setObsolete(boolean obsolete) {
+        this.obsolete = obsolete;
+    }
+
+    public boolean isHeader() {
+        return msgctxt == null && "".equals(msgid);
+    }
+
+    public boolean isPlural() {
+        return msgidPlural != null;
+    }
+
+    /**
+     * @return true, if the first translation is non-empty which is what
+     *         msgfmt considers translated
+     */
+    public boolean isTranslated() {
+        return msgstr.length > 0 && msgstr[0].length() > 0;
+    }
+
+    public boolean isFuzzy() {
+        for (String comment : comments) {
+            if (comment.startsWith("#,") && comment.contains("fuzzy")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the source references of the <code>#:</code> comments
+     */
+    public List<String> getReferences() {
+        List<String> references = new ArrayList<String>();
+        for (String comment : comments) {
+            if (comment.startsWith("#:")) {
+                for (String reference : comment.substring(2).trim().split("\\s+")) {
+                    if (reference.length() > 0) {
+                        references.add(reference);
+                    }
+                }
+            }
+        }
+        return references;
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Analyzes {@link java.text.MessageFormat} patterns at build time.
+ * <p>
+ * A pattern is compiled into a string of its literal text, with quotes
+ * already resolved, in which each simple argument like <code>{0}</code> is
+ * replaced by {@link #ARGUMENT} followed by the argument index as a char.
+ * Formatting then only needs to copy the text and substitute the arguments.
+ * Patterns with format types like <code>{0,number}</code> are not compiled
+ * and need to be formatted by MessageFormat at runtime.
+ */
+public class MessageFormatPattern {
+
+    /**
+     * Marks an argument in a compiled pattern. It is a noncharacter, so
+     * patterns that contain it are not compiled.
+     */
+    public static final char ARGUMENT = '\uffff';
+
+    private MessageFormatPattern() {
+    }
+
+    /**
+     * @return the compiled pattern, or null if the pattern contains
+     *         arguments with a format type or style or is not valid
+     */
+    public static String compile(String pattern) {
+        StringBuilder sb = new StringBuilder(pattern.length());
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == ARGUMENT) {
+                return null;
+            } else if (c == '\'') {
+                if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+                    sb.append('\'');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == '{' && !quoted) {
+                int end = pattern.indexOf('}', i);
+                if (end == -1) {
+                    return null;
+                }
+                String argument = pattern.substring(i + 1, end);
+                if (argument.length() == 0 || argument.length() > 4) {
+                    return null;
+                }
+                for (int j = 0; j < argument.length(); j++) {
+                    if (argument.charAt(j) < '0' || argument.charAt(j) > '9') {
+                        return null;
+                    }
+                }
+                int index = Integer.parseInt(argument);
+                sb.append(ARGUMENT).append((char) index);
+                i = end;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return true, if the compiled pattern does not have arguments, so it
+     *         is its own result
+     */
+    public static boolean isLiteral(String compiled) {
+        return compiled.indexOf(ARGUMENT) == -1;
+    }
+
+}
@@ -0,0 +1,233 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A minimal perfect hash function over a fixed set of strings, computed with
+ * the hash and displace algorithm.
+ * <p>
+ * Keys are first distributed into buckets. Buckets are then placed from the
+ * largest to the smallest by searching a displacement that maps all their
+ * keys to free slots. Buckets with a single key are assigned a free slot
+ * directly, which is stored as a negative displacement. The functions only
+ * rely on {@link String#hashCode()}, whose value is specified, so generated
+ * code can compute the same slots at runtime.
+ * <p>
+ * Keys with equal hash codes always share a bucket. The slots of such a
+ * bucket are computed from a second hash over the chars of the keys that is
+ * seeded with the displacement, which is marked with {@link #SEEDED}.
+ */
+public class PerfectHash {
+
+    /**
+     * The average number of keys per bucket.
+     */
+    private static final int KEYS_PER_BUCKET = 4;
+
+    private static final int MAX_ATTEMPTS = 1 << 20;
+
+    /**
+     * Marks the displacement of a bucket whose slots are computed with
+     * {@link #seededSlot(String, int, int)}.
+     */
+    static final int SEEDED = 1 << 30;
+
+    private final int size;
+    private final int[] displacements;
+
+    private PerfectHash(int size, int[] displacements) {
+        this.size = size;
+        this.displacements = displacements;
+    }
+
+    /**
+     * @return the perfect hash for <code>keys</code> or null, if a key is
+     *         contained more than once or too many keys have the same hash
+     *         code
+     */
+    public static PerfectHash create(List<String> keys) {
+        if (new HashSet<String>(keys).size() != keys.size()) {
+            return null;
+        }
+
+        int bucketCount = Math.max(1, keys.size() / KEYS_PER_BUCKET);
+        // keys with equal hash codes stay in one bucket however many there are
+        while (bucketCount <= Math.max(1, keys.size() * 2)) {
+            int[] displacements = place(keys, bucketCount);
+            if (displacements != null) {
+                return new PerfectHash(keys.size(), displacements);
+            }
+            // more buckets means fewer keys to place at once
+            bucketCount *= 2;
+        }
+        return null;
+    }
+
+    private static int[] place(List<String> keys, int bucketCount) {
+        int size = keys.size();
+        List<List<String>> buckets = new ArrayList<List<String>>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(new ArrayList<String>(KEYS_PER_BUCKET));
+        }
+        for (String key : keys) {
+            buckets.get(bucket(key.hashCode(), bucketCount)).add(key);
+        }
+
+        Integer[] order = new Integer[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            order[i] = i;
+        }
+        final List<List<String>> b = buckets;
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                return b.get(o2).size() - b.get(o1).size();
+            }
+        });
+
+        int[] displacements = new int[bucketCount];
+        boolean[] used = new boolean[size];
+        int[] slots = new int[b.get(order[0]).size()];
+        int nextFree = 0;
+        for (int index : order) {
+            List<String> bucket = buckets.get(index);
+            if (bucket.isEmpty()) {
+                break;
+            }
+            if (bucket.size() == 1) {
+                while (used[nextFree]) {
+                    nextFree++;
+                }
+                used[nextFree] = true;
+                displacements[index] = -nextFree - 1;
+                continue;
+            }
+
+            boolean seeded = hasEqualHashCodes(bucket);
+            boolean placed = false;
+            for (int d = 0; d < MAX_ATTEMPTS && !placed; d++) {
+                placed = true;
+                for (int k = 0; k < bucket.size(); k++) {
+                    String key = bucket.get(k);
+                    int slot = seeded ? seededSlot(key, d, size) : slot(key.hashCode(), d, size);
+                    if (used[slot] || contains(slots, k, slot)) {
+                        placed = false;
+                        break;
+                    }
+                    slots[k] = slot;
+                }
+                if (placed) {
+                    for (int k = 0; k < bucket.size(); k++) {
+                        used[slots[k]] = true;
+                    }
+                    displacements[index] = seeded ? d | SEEDED : d;
+                }
+            }
+            if (!placed) {
+                return null;
+            }
+        }
+        return displacements;
+    }
+
+    private static boolean hasEqualHashCodes(List<String> bucket) {
+        Set<Integer> hashCodes = new HashSet<Integer>();
+        for (String key : bucket) {
+            if (!hashCodes.add(key.hashCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    static int bucket(int hashCode, int bucketCount) {
+        return (mix(hashCode) & 0x7fffffff) % bucketCount;
+    }
+
+    static int slot(int hashCode, int displacement, int size) {
+        return (mix(hashCode + (displacement + 1) * 0x9e3779b9) & 0x7fffffff) % size;
+    }
+
+    /**
+     * @return the slot of a key of a bucket with equal hash codes, computed
+     *         with an FNV-1a hash of its chars seeded with the displacement
+     */
+    static int seededSlot(String key, int displacement, int size) {
+        int h = (displacement + 1) * 0x9e3779b9;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x01000193;
+        }
+        return (mix(h) & 0x7fffffff) % size;
+    }
+
+    /**
+     * @return the number of slots, which equals the number of keys
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the slot of <code>key</code> if it is one of the keys
+     */
+    public int getSlot(String key) {
+        int h = key.hashCode();
+        int d = displacements[bucket(h, displacements.length)];
+        if (d < 0) {
+            return -d - 1;
+        }
+        return (d & SEEDED) != 0 ? seededSlot(key, d & ~SEEDED, size) : slot(h, d, size);
+    }
+
+    /**
+     * @return the displacements as a string of two chars per bucket
+     */
+    public String getDisplacementData() {
+        StringBuilder sb = new StringBuilder(displacements.length * 2);
+        for (int d : displacements) {
+            sb.append((char) (d >>> 16)).append((char) d);
+        }
+        return sb.toString();
+    }
+
+    public int getBucketCount() {
+        return displacements.length;
+    }
+
+}
@@ -0,0 +1,369 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The Plural-Forms header of a catalog, e.g.
+ * <code>nplurals=2; plural=(n != 1);</code>.
+ * <p>
+ * The plural expression is parsed with C semantics and can be evaluated at
+ * build time or translated into a Java expression.
+ */
+public class PluralForms {
+
+    private static final Pattern NPLURALS = Pattern.compile("nplurals\\s*=\\s*(\\d+)");
+
+    private static final Pattern PLURAL = Pattern.compile("plural\\s*=\\s*([^;]+)");
+
+    public static final PluralForms GERMANIC = parse("nplurals=2; plural=(n != 1);");
+
+    private final int count;
+    private final Node expression;
+
+    private PluralForms(int count, Node expression) {
+        this.count = count;
+        this.expression = expression;
+    }
+
+    /**
+     * @param value the value of the Plural-Forms header
+     * @throws IllegalArgumentException if the value cannot be parsed
+     */
+    public static PluralForms parse(String value) {
+        Matcher nplurals = NPLURALS.matcher(value);
+        Matcher plural = PLURAL.matcher(value);
+        if (!nplurals.find() || !plural.find()) {
+            throw new IllegalArgumentException("Invalid Plural-Forms: " + value);
+        }
+        int count = Integer.parseInt(nplurals.group(1));
+        if (count < 1) {
+            throw new IllegalArgumentException("Invalid nplurals: " + value);
+        }
+        return new PluralForms(count, new ExpressionParser(plural.group(1)).parse());
+    }
+
+    /**
+     * @return the number of plural forms
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the index of the plural form for <code>n</code>; out of range
+     *         results are mapped to 0 like gettext does
+     */
+    public int evaluate(long n) {
+        long index = expression.eval(n);
+        return index >= 0 && index < count ? (int) index : 0;
+    }
+
+    /**
+     * @return a Java expression of type <code>long</code> that computes the
+     *         unchecked plural index from a <code>long</code> variable
+     *         <code>n</code>
+     */
+    public String toJava() {
+        return expression.toJava(false);
+    }
+
+    private static abstract class Node {
+
+        abstract long eval(long n);
+
+        abstract boolean isBoolean();
+
+        abstract String toJavaNative();
+
+        String toJava(boolean asBoolean) {
+            String java = toJavaNative();
+            if (asBoolean == isBoolean()) {
+                return java;
+            }
+            return asBoolean ? "(" + java + " != 0L)" : "(" + java + " ? 1L : 0L)";
+        }
+
+    }
+
+    private static class Literal extends Node {
+
+        private final long value;
+
+        Literal(long value) {
+            this.value = value;
+        }
+
+        long eval(long n) {
+            return value;
+        }
+
+        boolean isBoolean() {
+            return false;
+        }
+
+        String toJavaNative() {
+            return value + "L";
+        }
+
+    }
+
+    private static class Variable extends Node {
+
+        long eval(long n) {
+            return n;
+        }
+
+        boolean isBoolean() {
+            return false;
+        }
+
+        String toJavaNative() {
+            return "n";
+        }
+
+    }
+
+    private static class Not extends Node {
+
+        private final Node operand;
+
+        Not(Node operand) {
+            this.operand = operand;
+        }
+
+        long eval(long n) {
+            return operand.eval(n) == 0 ? 1 : 0;
+        }
+
+        boolean isBoolean() {
+            return true;
+        }
+
+        String toJavaNative() {
+            return "!" + operand.toJava(true);
+        }
+
+    }
+
+    private static class Conditional extends Node {
+
+        private final Node condition;
+        private final Node then;
+        private final Node otherwise;
+
+        Conditional(Node condition, Node then, Node otherwise) {
+            this.condition = condition;
+            this.then = then;
+            this.otherwise = otherwise;
+        }
+
+        long eval(long n) {
+            return condition.eval(n) != 0 ? then.eval(n) : otherwise.eval(n);
+        }
+
+        boolean isBoolean() {
+            return false;
+        }
+
+        String toJavaNative() {
+            return "(" + condition.toJava(true) + " ? " + then.toJava(false) + " : " + otherwise.toJava(false) + ")";
+        }
+
+    }
+
+    private static class Binary extends Node {
+
+        private final String operator;
+        private final Node left;
+        private final Node right;
+
+        Binary(String operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        long eval(long n) {
+            if (operator.equals("&&")) {
+                return left.eval(n) != 0 && right.eval(n) != 0 ? 1 : 0;
+            } else if (operator.equals("||")) {
+                return left.eval(n) != 0 || right.eval(n) != 0 ? 1 : 0;
+            }
+            long l = left.eval(n);
+            long r = right.eval(n);
+            if (operator.equals("==")) {
+                return l == r ? 1 : 0;
+            } else if (operator.equals("!=")) {
+                return l != r ? 1 : 0;
+            } else if (operator.equals("<")) {
+                return l < r ? 1 : 0;
+            } else if (operator.equals("<=")) {
+                return l <= r ? 1 : 0;
+            } else if (operator.equals(">")) {
+                return l > r ? 1 : 0;
+            } else if (operator.equals(">=")) {
+                return l >= r ? 1 : 0;
+            } else if (operator.equals("+")) {
+                return l + r;
+            } else if (operator.equals("-")) {
+                return l - r;
+            } else if (operator.equals("*")) {
+                return l * r;
+            } else if (operator.equals("/")) {
+                return l / r;
+            } else {
+                return l % r;
+            }
+        }
+
+        boolean isBoolean() {
+            return !isArithmetic();
+        }
+
+        private boolean isArithmetic() {
+            return "+-*/%".contains(operator);
+        }
+
+        String toJavaNative() {
+            boolean logical = operator.equals("&&") || operator.equals("||");
+            return "(" + left.toJava(logical) + " " + operator + " " + right.toJava(logical) + ")";
+        }
+
+    }
+
+    /**
+     * Recursive descent parser for the C subset used in plural expressions.
+     */
+    private static class ExpressionParser {
+
+        private static final String[][] PRECEDENCE = {
+                {"||"},
+                {"&&"},
+                {"==", "!="},
+                {"<=", ">=", "<", ">"},
+                {"+", "-"},
+                {"*", "/", "%"},
+        };
+
+        private final String input;
+        private int pos;
+
+        ExpressionParser(String input) {
+            this.input = input;
+        }
+
+        Node parse() {
+            Node node = conditional();
+            skipWhitespace();
+            if (pos != input.length()) {
+                throw error();
+            }
+            return node;
+        }
+
+        private Node conditional() {
+            Node condition = binary(0);
+            if (accept("?")) {
+                Node then = conditional();
+                expect(":");
+                Node otherwise = conditional();
+                return new Conditional(condition, then, otherwise);
+            }
+            return condition;
+        }
+
+        private Node binary(int level) {
+            if (level == PRECEDENCE.length) {
+                return unary();
+            }
+            Node node = binary(level + 1);
+            String operator;
+            while ((operator = acceptAny(PRECEDENCE[level])) != null) {
+                node = new Binary(operator, node, binary(level + 1));
+            }
+            return node;
+        }
+
+        private Node unary() {
+            if (accept("!")) {
+                return new Not(unary());
+            }
+            return primary();
+        }
+
+        private Node primary() {
+            skipWhitespace();
+            if (accept("(")) {
+                Node node = conditional();
+                expect(")");
+                return node;
+            } else if (accept("n")) {
+                return new Variable();
+            }
+            int start = pos;
+            while (pos < input.length() && Character.isDigit(input.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error();
+            }
+            return new Literal(Long.parseLong(input.substring(start, pos)));
+        }
+
+        private String acceptAny(String[] operators) {
+            skipWhitespace();
+            for (String operator : operators) {
+                // do not mistake "!=" for "!" or "<=" for "<"
+                if (input.startsWith(operator, pos)
+                        && !(operator.length() == 1 && input.startsWith("=", pos + 1))) {
+                    pos += operator.length();
+                    return operator;
+                }
+            }
+            return null;
+        }
+
+        private boolean accept(String token) {
+            skipWhitespace();
+            if (input.startsWith(token, pos) && !(token.equals("!") && input.startsWith("!=", pos))) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw error();
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < input.length() && Character.isWhitespace(input.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error() {
+            return new IllegalArgumentException("Invalid plural expression at position "
+                    + pos + ": " + input);
+        }
+
+    }
+
+}
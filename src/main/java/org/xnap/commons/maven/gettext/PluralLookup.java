@@ -0,0 +1,28 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ResourceBundle;
+
+/**
+ * Implemented by the driver class the benchmark goal generates and compiles
+ * against the base class of the bundles, so it can call
+ * <code>lookupPlural</code> without reflection.
+ */
+public interface PluralLookup {
+
+    String lookupPlural(ResourceBundle bundle, String msgid, long n);
+
+}
@@ -0,0 +1,259 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges a .po catalog with a template like msgmerge does, but only with
+ * exact matches of msgctxt and msgid. Where msgmerge would keep an obsolete
+ * translation as fuzzy translation of a similar new message, it is obsoleted
+ * and the new message is left untranslated, see {@link #getObsoleted()} and
+ * {@link #getUntranslated()}. The same applies to translations of messages
+ * that switched between singular and plural, which msgmerge keeps as fuzzy.
+ * <p>
+ * Messages of the template keep their translation, translator comments and
+ * fuzzy flag from the catalog and take their extracted comments, references
+ * and other flags from the template. Messages that are no longer in the
+ * template become obsolete and obsolete messages that reappear are revived.
+ */
+public class PoMerger {
+
+    private final TranslationMemory translationMemory;
+
+    private int translated;
+    private int filled;
+    private int obsoleted;
+    private int untranslated;
+
+    /**
+     * @param translationMemory used to fill in messages without translation,
+     *            may be null
+     */
+    public PoMerger(TranslationMemory translationMemory) {
+        this.translationMemory = translationMemory;
+    }
+
+    /**
+     * @return a new catalog with the messages of <code>template</code> in
+     *         template order followed by the obsolete messages
+     */
+    public Catalog merge(Catalog catalog, Catalog template, String locale) {
+        translated = 0;
+        filled = 0;
+        obsoleted = 0;
+        untranslated = 0;
+
+        Map<String, Message> obsolete = new HashMap<String, Message>();
+        for (Message message : catalog.getMessages()) {
+            if (message.isObsolete()) {
+                obsolete.put(message.getKey(), message);
+            }
+        }
+
+        int pluralCount = catalog.getPluralForms().getCount();
+        Catalog result = new Catalog();
+        result.message(mergeHeader(catalog.getHeader(), template.getHeader()));
+        for (Message message : template.getMessages()) {
+            if (message.isHeader() || message.isObsolete()) {
+                continue;
+            }
+            Message existing = catalog.getMessage(message.getKey());
+            if (existing == null) {
+                existing = obsolete.remove(message.getKey());
+            }
+            Message merged = new Message();
+            merged.setMsgctxt(message.getMsgctxt());
+            merged.setMsgid(message.getMsgid());
+            merged.setMsgidPlural(message.getMsgidPlural());
+            merged.setMsgstrPlural(emptyForms(message.isPlural() ? pluralCount : 1));
+            boolean fuzzy = false;
+            if (existing != null && existing.isTranslated() && existing.isPlural() == message.isPlural()) {
+                merged.setMsgstrPlural(existing.getMsgstrPlural());
+                fuzzy = existing.isFuzzy();
+                translated++;
+            } else {
+                if (existing != null && existing.isTranslated()) {
+                    // switched between singular and plural, msgmerge keeps it as fuzzy
+                    obsoleted++;
+                }
+                String[] forms = translationMemory != null ? translationMemory.lookup(locale, message.getKey()) : null;
+                if (forms != null && forms.length == merged.getMsgstrPlural().length) {
+                    merged.setMsgstrPlural(forms);
+                    filled++;
+                } else {
+                    untranslated++;
+                }
+            }
+            mergeComments(merged, message, existing, fuzzy);
+            result.message(merged);
+        }
+
+        for (Message message : catalog.getMessages()) {
+            if (message.isHeader() || (!message.isObsolete() && template.getMessage(message.getKey()) != null)) {
+                continue;
+            }
+            if (message.isObsolete()) {
+                if (obsolete.get(message.getKey()) != message) {
+                    // revived
+                    continue;
+                }
+            } else if (!message.isTranslated()) {
+                // msgmerge drops untranslated messages
+                continue;
+            } else {
+                obsoleted++;
+            }
+            Message entry = new Message();
+            entry.setMsgctxt(message.getMsgctxt());
+            entry.setMsgid(message.getMsgid());
+            entry.setMsgidPlural(message.getMsgidPlural());
+            entry.setMsgstrPlural(message.getMsgstrPlural());
+            for (String comment : message.getComments()) {
+                if (isTranslatorComment(comment)) {
+                    entry.getComments().add(comment);
+                }
+            }
+            entry.setObsolete(true);
+            result.message(entry);
+        }
+        return result;
+    }
+
+    /**
+     * @return the header of the catalog with the POT-Creation-Date of the
+     *         template
+     */
+    private Message mergeHeader(Message header, Message templateHeader) {
+        if (header == null) {
+            header = templateHeader;
+        }
+        if (header == null) {
+            Message empty = new Message();
+            empty.setMsgid("");
+            return empty;
+        }
+        Message merged = new Message();
+        merged.setMsgid("");
+        merged.getComments().addAll(header.getComments());
+        String date = getField(templateHeader, "POT-Creation-Date");
+        StringBuilder sb = new StringBuilder();
+        for (String line : header.getMsgstr().split("\n")) {
+            if (line.length() == 0) {
+                continue;
+            }
+            if (date != null && line.startsWith("POT-Creation-Date:")) {
+                line = "POT-Creation-Date: " + date;
+            }
+            sb.append(line).append('\n');
+        }
+        merged.setMsgstr(sb.toString());
+        return merged;
+    }
+
+    private String getField(Message header, String name) {
+        if (header == null) {
+            return null;
+        }
+        for (String line : header.getMsgstr().split("\n")) {
+            if (line.startsWith(name + ":")) {
+                return line.substring(name.length() + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Orders comments like msgmerge: translator comments, extracted
+     * comments, references, flags and previous msgids of fuzzy messages.
+     */
+    private void mergeComments(Message merged, Message message, Message existing, boolean fuzzy) {
+        List<String> comments = merged.getComments();
+        List<String> previous = new ArrayList<String>();
+        if (existing != null) {
+            for (String comment : existing.getComments()) {
+                if (isTranslatorComment(comment)) {
+                    comments.add(comment);
+                } else if (fuzzy && comment.startsWith("#|")) {
+                    previous.add(comment);
+                }
+            }
+        }
+        String flags = null;
+        for (String comment : message.getComments()) {
+            if (comment.startsWith("#.") || comment.startsWith("#:")) {
+                comments.add(comment);
+            } else if (comment.startsWith("#,")) {
+                flags = comment.substring(2).trim();
+            }
+        }
+        if (fuzzy) {
+            flags = flags == null || flags.length() == 0 ? "fuzzy" : "fuzzy, " + flags;
+        }
+        if (flags != null && flags.length() > 0) {
+            comments.add("#, " + flags);
+        }
+        comments.addAll(previous);
+    }
+
+    private boolean isTranslatorComment(String comment) {
+        return comment.equals("#") || comment.startsWith("# ");
+    }
+
+    private String[] emptyForms(int count) {
+        String[] forms = new String[count];
+        for (int i = 0; i < count; i++) {
+            forms[i] = "";
+        }
+        return forms;
+    }
+
+    /**
+     * @return the number of messages of the last merge that kept their
+     *         translation
+     */
+    public int getTranslated() {
+        return translated;
+    }
+
+    /**
+     * @return the number of messages of the last merge that were filled in
+     *         from the translation memory
+     */
+    public int getFilled() {
+        return filled;
+    }
+
+    /**
+     * @return the number of translated messages of the last merge that
+     *         became obsolete or lost their translation because they switched
+     *         between singular and plural
+     */
+    public int getObsoleted() {
+        return obsoleted;
+    }
+
+    /**
+     * @return the number of messages of the last merge that are left without
+     *         translation
+     */
+    public int getUntranslated() {
+        return untranslated;
+    }
+
+}
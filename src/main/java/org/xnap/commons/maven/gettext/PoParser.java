@@ -0,0 +1,262 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.LocaleUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Reads .po and .pot files without invoking any of the gettext tools.
+ */
+public class PoParser {
+
+    private static final Pattern CHARSET = Pattern.compile("charset=([\\w.:-]+)");
+
+    private static final Pattern MSGSTR_INDEX = Pattern.compile("msgstr\\[(\\d+)\\]");
+
+    /**
+     * Receives the entries of a parsed file in file order.
+     */
+    public interface Handler {
+        void message(Message message);
+    }
+
+    private final String name;
+    private final Handler handler;
+
+    private Message message;
+    private List<String> comments = new ArrayList<String>();
+    private List<String> msgstrPlural = new ArrayList<String>();
+    private StringBuilder value;
+    private String keyword;
+    private int lineNumber;
+
+    private PoParser(String name, Handler handler) {
+        this.name = name;
+        this.handler = handler;
+    }
+
+    /**
+     * Parses a file into a new catalog.
+     */
+    public static Catalog parse(File file) throws IOException {
+        Catalog catalog = new Catalog();
+        parse(file, catalog);
+        return catalog;
+    }
+
+    /**
+     * Parses a file and passes each entry to <code>handler</code>. The
+     * encoding is taken from the charset declared in the header.
+     */
+    public static void parse(File file, Handler handler) throws IOException {
+        byte[] data;
+        InputStream in = new FileInputStream(file);
+        try {
+            data = IOUtil.toByteArray(in);
+        } finally {
+            in.close();
+        }
+        String content = new String(data, getCharset(data, data.length));
+        new PoParser(file.getName(), handler).parse(content);
+    }
+
+    /**
+     * @return the locale of a .po file, which is named after it
+     */
+    public static String getLocale(File file) {
+        String locale = file.getName().substring(0, file.getName().lastIndexOf('.'));
+        return LocaleUtils.toLocale(locale).toString();
+    }
+
+    /**
+     * @return the charset declared in the header among the first
+     *         <code>length</code> bytes of <code>data</code>, or UTF-8
+     */
+    static Charset getCharset(byte[] data, int length) {
+        // the header is ascii in all supported charsets
+        String head = new String(data, 0, Math.min(length, 4096), Charset.forName("ISO-8859-1"));
+        Matcher matcher = CHARSET.matcher(head);
+        if (matcher.find()) {
+            try {
+                return Charset.forName(matcher.group(1));
+            } catch (IllegalArgumentException e) {
+                // CHARSET placeholder of templates
+            }
+        }
+        return Charset.forName("UTF-8");
+    }
+
+    private void parse(String content) throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(content));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            boolean obsolete = false;
+            if (line.startsWith("#~")) {
+                obsolete = true;
+                line = line.substring(2).trim();
+                if (line.startsWith("|") || line.startsWith("#")) {
+                    // previous msgid or comment of an obsolete entry
+                    continue;
+                }
+            }
+
+            if (line.length() == 0) {
+                continue;
+            } else if (line.startsWith("#")) {
+                flush();
+                comments.add(line);
+            } else if (line.startsWith("\"")) {
+                if (value == null) {
+                    throw error("string without keyword");
+                }
+                value.append(unquote(line));
+            } else {
+                int i = line.indexOf(' ');
+                if (i == -1) {
+                    throw error("missing string");
+                }
+                String kw = line.substring(0, i);
+                if (kw.equals("msgctxt") || (kw.equals("msgid") && (message == null || message.getMsgid() != null))) {
+                    flush();
+                }
+                if (message == null) {
+                    message = new Message();
+                    message.getComments().addAll(comments);
+                    comments.clear();
+                }
+                message.setObsolete(obsolete);
+                endValue();
+                keyword = kw;
+                value = new StringBuilder(unquote(line.substring(i + 1).trim()));
+            }
+        }
+        flush();
+    }
+
+    private void endValue() throws IOException {
+        if (keyword == null) {
+            return;
+        }
+        String s = value.toString();
+        if (keyword.equals("msgctxt")) {
+            message.setMsgctxt(s);
+        } else if (keyword.equals("msgid")) {
+            message.setMsgid(s);
+        } else if (keyword.equals("msgid_plural")) {
+            message.setMsgidPlural(s);
+        } else if (keyword.equals("msgstr")) {
+            message.setMsgstr(s);
+        } else {
+            Matcher matcher = MSGSTR_INDEX.matcher(keyword);
+            if (!matcher.matches()) {
+                throw error("unknown keyword " + keyword);
+            }
+            int index = Integer.parseInt(matcher.group(1));
+            while (msgstrPlural.size() <= index) {
+                msgstrPlural.add("");
+            }
+            msgstrPlural.set(index, s);
+        }
+        keyword = null;
+        value = null;
+    }
+
+    private void flush() throws IOException {
+        if (message == null) {
+            return;
+        }
+        endValue();
+        if (message.getMsgid() == null) {
+            throw error("missing msgid");
+        }
+        if (!msgstrPlural.isEmpty()) {
+            message.setMsgstrPlural(msgstrPlural.toArray(new String[msgstrPlural.size()]));
+            msgstrPlural.clear();
+        }
+        handler.message(message);
+        message = null;
+    }
+
+    private String unquote(String s) throws IOException {
+        if (s.length() < 2 || !s.startsWith("\"") || !s.endsWith("\"")) {
+            throw error("invalid string " + s);
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 1; i < s.length() - 1; i++) {
+            char c = s.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (++i >= s.length() - 1) {
+                throw error("invalid escape sequence");
+            }
+            c = s.charAt(i);
+            switch (c) {
+                case 'n': sb.append('\n'); break;
+                case 't': sb.append('\t'); break;
+                case 'r': sb.append('\r'); break;
+                case 'a': sb.append('\007'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'v': sb.append('\013'); break;
+                case 'x': {
+                    int end = i + 1;
+                    while (end < s.length() - 1 && Character.digit(s.charAt(end), 16) != -1) {
+                        end++;
+                    }
+                    if (end == i + 1) {
+                        throw error("invalid hex escape");
+                    }
+                    sb.append((char) Integer.parseInt(s.substring(i + 1, end), 16));
+                    i = end - 1;
+                    break;
+                }
+                default:
+                    if (c >= '0' && c <= '7') {
+                        int end = i;
+                        while (end < s.length() - 1 && end < i + 3 && s.charAt(end) >= '0' && s.charAt(end) <= '7') {
+                            end++;
+                        }
+                        sb.append((char) Integer.parseInt(s.substring(i, end), 8));
+                        i = end - 1;
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+    private IOException error(String message) {
+        return new IOException("Syntax error in " + name + ":" + lineNumber + ": " + message);
+    }
+
+}
@@ -0,0 +1,188 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Writes entries in .po format. Unless a charset is given, the output is
+ * UTF-8 encoded, so the header of the written catalog should declare that
+ * charset. Long values are wrapped like msgmerge wraps them, so merging a
+ * catalog in the plugin and with msgmerge gives the same layout.
+ */
+public class PoWriter {
+
+    /**
+     * The maximum line width of msgmerge and xgettext.
+     */
+    public static final int PAGE_WIDTH = 79;
+
+    private final Writer out;
+
+    public PoWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes all messages to <code>file</code>.
+     */
+    public static void write(File file, Iterable<Message> messages) throws IOException {
+        write(file, messages, Charset.forName("UTF-8"));
+    }
+
+    /**
+     * Writes all messages to <code>file</code> in <code>charset</code>, which
+     * should be the charset declared in the header.
+     */
+    public static void write(File file, Iterable<Message> messages, Charset charset) throws IOException {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), charset);
+        try {
+            PoWriter writer = new PoWriter(out);
+            for (Message message : messages) {
+                writer.write(message);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes a message followed by an empty line.
+     */
+    public void write(Message message) throws IOException {
+        String prefix = message.isObsolete() ? "#~ " : "";
+        boolean wrap = true;
+        for (String comment : message.getComments()) {
+            if (comment.startsWith("#,") && comment.contains("no-wrap")) {
+                wrap = false;
+            }
+            out.write(comment);
+            out.write('\n');
+        }
+        if (message.getMsgctxt() != null) {
+            write(prefix, "msgctxt", message.getMsgctxt(), wrap);
+        }
+        write(prefix, "msgid", message.getMsgid(), wrap);
+        if (message.isPlural()) {
+            write(prefix, "msgid_plural", message.getMsgidPlural(), wrap);
+            String[] forms = message.getMsgstrPlural();
+            for (int i = 0; i < forms.length; i++) {
+                write(prefix, "msgstr[" + i + "]", forms[i], wrap);
+            }
+        } else {
+            write(prefix, "msgstr", message.getMsgstr(), wrap);
+        }
+        out.write('\n');
+    }
+
+    /**
+     * Writes a keyword and its value wrapped like the gettext tools do:
+     * values that do not fit on the keyword line or have inner newlines
+     * start with an empty string and are continued on one line per newline.
+     * Lines longer than {@link #PAGE_WIDTH} are broken after spaces.
+     */
+    private void write(String prefix, String keyword, String value, boolean wrap) throws IOException {
+        int newline = value.indexOf('\n');
+        String first = prefix + keyword + " ";
+        if (newline == -1 || newline == value.length() - 1) {
+            if (!wrap || first.length() + escape(value).length() + 2 <= PAGE_WIDTH) {
+                out.write(first);
+                writeString(escape(value));
+                out.write('\n');
+                return;
+            }
+        }
+        out.write(first);
+        out.write("\"\"\n");
+        int start = 0;
+        while (start < value.length()) {
+            int end = value.indexOf('\n', start);
+            end = end == -1 ? value.length() : end + 1;
+            String line = value.substring(start, end);
+            if (wrap) {
+                writeWrapped(prefix, line);
+            } else {
+                out.write(prefix);
+                writeString(escape(line));
+                out.write('\n');
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Writes a line of a value on as many lines as needed to stay within
+     * {@link #PAGE_WIDTH}. A word that is longer than a line is not broken.
+     */
+    private void writeWrapped(String prefix, String line) throws IOException {
+        int width = PAGE_WIDTH - prefix.length() - 2;
+        StringBuilder sb = new StringBuilder();
+        int start = 0;
+        while (start < line.length()) {
+            int end = start;
+            while (end < line.length() && line.charAt(end) != ' ') {
+                end++;
+            }
+            while (end < line.length() && line.charAt(end) == ' ') {
+                end++;
+            }
+            String word = escape(line.substring(start, end));
+            if (sb.length() > 0 && sb.length() + word.length() > width) {
+                out.write(prefix);
+                writeString(sb.toString());
+                out.write('\n');
+                sb.setLength(0);
+            }
+            sb.append(word);
+            start = end;
+        }
+        out.write(prefix);
+        writeString(sb.toString());
+        out.write('\n');
+    }
+
+    private void writeString(String escaped) throws IOException {
+        out.write('"');
+        out.write(escaped);
+        out.write('"');
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\007': sb.append("\\a"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\f': sb.append("\\f"); break;
+                case '\013': sb.append("\\v"); break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+}
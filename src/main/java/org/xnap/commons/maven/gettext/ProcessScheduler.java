@@ -0,0 +1,189 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.cli.CommandLineException;
+import org.codehaus.plexus.util.cli.CommandLineTimeOutException;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.codehaus.plexus.util.cli.Commandline;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Limits the number of gettext processes that run at the same time. A single
+ * instance is shared by all mojo executions of a build, including those of
+ * other modules in a parallel reactor build. Each build gets its own
+ * instance, so a long-lived JVM running several builds does not carry the
+ * limit or the statistics of one build over to the next.
+ */
+public class ProcessScheduler {
+
+    private static final Map<Object, ProcessScheduler> instances = new WeakHashMap<Object, ProcessScheduler>();
+
+    private final int permits;
+    private final Semaphore semaphore;
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final AtomicInteger timeouts = new AtomicInteger();
+    private final AtomicLong totalWait = new AtomicLong();
+    private final AtomicLong maxWait = new AtomicLong();
+
+    ProcessScheduler(int permits) {
+        this.permits = permits;
+        this.semaphore = new Semaphore(permits, true);
+    }
+
+    /**
+     * Returns the scheduler of the build of <code>session</code>. Maven
+     * clones the session for each project, so the scheduler is looked up by
+     * the execution request, which all clones share.
+     *
+     * @see #getInstance(Object, int, Log)
+     */
+    public static ProcessScheduler getInstance(MavenSession session, int maxProcesses, Log log) {
+        return getInstance((Object) session.getRequest(), maxProcesses, log);
+    }
+
+    /**
+     * Returns the scheduler of a build. The number of permits is determined
+     * by the first caller; later callers that ask for a different number
+     * are warned.
+     *
+     * @param build        identifies the build, e.g. the execution request;
+     *                     the scheduler is released with it
+     * @param maxProcesses the maximum number of concurrent processes, or 0 for
+     *                     the number of available processors
+     */
+    public static synchronized ProcessScheduler getInstance(Object build, int maxProcesses, Log log) {
+        ProcessScheduler instance = instances.get(build);
+        if (instance == null) {
+            instance = new ProcessScheduler(maxProcesses > 0
+                    ? maxProcesses : Runtime.getRuntime().availableProcessors());
+            instances.put(build, instance);
+        } else if (maxProcesses > 0 && maxProcesses != instance.permits) {
+            log.warn("Ignoring maxProcesses " + maxProcesses + ", gettext processes of this build are already limited to "
+                    + instance.permits);
+        }
+        return instance;
+    }
+
+    public int getPermits() {
+        return permits;
+    }
+
+    /**
+     * Executes a command once a permit is available.
+     *
+     * @param timeout the number of seconds after which the process is killed,
+     *                or 0 to wait indefinitely
+     * @return the exit code of the process
+     * @throws CommandLineTimeOutException if the process was killed
+     */
+    public int execute(Commandline cl, StreamConsumer out, StreamConsumer err, int timeout)
+            throws CommandLineException {
+        long start = System.nanoTime();
+        semaphore.acquireUninterruptibly();
+        try {
+            recordWait(System.nanoTime() - start);
+            return CommandLineUtils.executeCommandLine(cl, out, err, timeout);
+        } catch (CommandLineTimeOutException e) {
+            timeouts.incrementAndGet();
+            throw e;
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    /**
+     * Executes commands concurrently, logging their output to
+     * <code>log</code>. Failures are logged and do not stop other commands.
+     */
+    public void executeAll(List<Commandline> commands, final Log log, final int timeout) {
+        if (commands.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(permits, commands.size()));
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (final Commandline cl : commands) {
+                futures.add(executor.submit(new Callable<Object>() {
+                    public Object call() {
+                        log.debug("Executing: " + cl.toString());
+                        StreamConsumer out = new LoggerStreamConsumer(log, LoggerStreamConsumer.INFO);
+                        StreamConsumer err = new LoggerStreamConsumer(log, LoggerStreamConsumer.WARN);
+                        try {
+                            execute(cl, out, err, timeout);
+                        } catch (CommandLineTimeOutException e) {
+                            log.error("Killed " + cl.getExecutable() + " after " + timeout + " seconds.", e);
+                        } catch (CommandLineException e) {
+                            log.error("Could not execute " + cl.getExecutable() + ".", e);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.error(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        executions.incrementAndGet();
+        totalWait.addAndGet(nanos);
+        long max;
+        do {
+            max = maxWait.get();
+        } while (nanos > max && !maxWait.compareAndSet(max, nanos));
+    }
+
+    /**
+     * @return a summary of the executions so far, e.g. for logging
+     */
+    public String getStatistics() {
+        int count = executions.get();
+        long total = TimeUnit.NANOSECONDS.toMillis(totalWait.get());
+        return count + " process(es) with " + permits + " permit(s), queue wait total "
+                + total + " ms, average " + (count > 0 ? total / count : 0) + " ms, max "
+                + TimeUnit.NANOSECONDS.toMillis(maxWait.get()) + " ms, "
+                + timeouts.get() + " timeout(s)";
+    }
+
+}
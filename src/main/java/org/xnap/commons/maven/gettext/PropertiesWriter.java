@@ -0,0 +1,76 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.List;
+
+/**
+ * Formats messages as a properties file that {@link java.util.Properties}
+ * and <code>PropertyResourceBundle</code> read, like
+ * <code>msgcat --properties-output</code>. Non-ASCII characters are escaped,
+ * so the result can be stored in any ASCII compatible encoding.
+ */
+public class PropertiesWriter {
+
+    private PropertiesWriter() {
+    }
+
+    /**
+     * @return one line per message mapping its key to the first form of its
+     *         translation; the header is skipped
+     */
+    public static String format(List<Message> messages) {
+        StringBuilder sb = new StringBuilder();
+        for (Message message : messages) {
+            if (message.isHeader()) {
+                continue;
+            }
+            escape(sb, message.getKey(), true);
+            sb.append('=');
+            escape(sb, message.getMsgstr(), false);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void escape(StringBuilder sb, String s, boolean key) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case ' ':
+                    sb.append(key || i == 0 ? "\\ " : " ");
+                    break;
+                case '\\': sb.append("\\\\"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\f': sb.append("\\f"); break;
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    sb.append('\\').append(c);
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+    }
+
+}
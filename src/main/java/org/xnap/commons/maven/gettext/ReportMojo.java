@@ -26,6 +26,7 @@ import java.util.Locale;
 import java.util.StringTokenizer;
 
 import org.apache.maven.doxia.sink.Sink;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -33,7 +34,6 @@ import org.apache.maven.reporting.AbstractMavenReport;
 import org.apache.maven.reporting.MavenReportException;
 import org.codehaus.plexus.util.DirectoryScanner;
 import org.codehaus.plexus.util.cli.CommandLineException;
-import org.codehaus.plexus.util.cli.CommandLineUtils;
 import org.codehaus.plexus.util.cli.Commandline;
 import org.codehaus.plexus.util.cli.WriterStreamConsumer;
 
@@ -43,7 +43,7 @@ import org.codehaus.plexus.util.cli.WriterStreamConsumer;
  * @author Steffen Pingel
  *
  */
-@Mojo(name = "report", defaultPhase = LifecyclePhase.PROCESS_SOURCES)
+@Mojo(name = "report", defaultPhase = LifecyclePhase.PROCESS_SOURCES, threadSafe = true)
 public class ReportMojo extends AbstractMavenReport {
 
     /**
@@ -58,6 +58,24 @@ public class ReportMojo extends AbstractMavenReport {
     @Parameter(defaultValue = "msgfmt", required = true)
     protected String msgfmtCmd;
 
+    /**
+     * The maximum number of gettext processes that run at the same time
+     * across all modules of the build. Defaults to the number of processors.
+     * The value of the first goal that runs applies to the whole build.
+     */
+    @Parameter(property = "gettext.maxProcesses", defaultValue = "0")
+    protected int maxProcesses;
+
+    /**
+     * Number of seconds after which a gettext process is killed, so a hanging
+     * process does not block the build. 0 disables the timeout.
+     */
+    @Parameter(property = "gettext.processTimeout", defaultValue = "600")
+    protected int processTimeout;
+
+    @Parameter(defaultValue = "${session}", required = true, readonly = true)
+    protected MavenSession session;
+
     protected void executeReport(Locale locale) throws MavenReportException {
         Sink sink = getSink();
 
@@ -165,9 +183,9 @@ public class ReportMojo extends AbstractMavenReport {
             Writer out = new StringWriter();
             Writer err = new StringWriter();
             try {
-                int ret = CommandLineUtils.executeCommandLine(cl,
+                int ret = ProcessScheduler.getInstance(session, maxProcesses, getLog()).execute(cl,
                         new WriterStreamConsumer(out),
-                        new WriterStreamConsumer(err));
+                        new WriterStreamConsumer(err), processTimeout);
                 if (ret == 0) {
                     // for whatever reason the output is written to stderr
                     stats.parseOutput(file, err.toString());
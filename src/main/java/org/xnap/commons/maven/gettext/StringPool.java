@@ -0,0 +1,160 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deduplicates the strings of several bundle classes into shared pool
+ * classes. Bundles reference pooled strings by index, so each distinct
+ * string is stored once per pool. The pool classes are loaded as a whole
+ * when the first bundle that references them is loaded, so bundles should
+ * only share a pool if they are likely to be used together, e.g. the
+ * bundles of one language.
+ */
+public class StringPool {
+
+    /**
+     * The number of strings per pool class, which keeps the constant pool
+     * of each class below its limit of 65535 entries.
+     */
+    private static final int STRINGS_PER_CLASS = 16000;
+
+    private static final int STRINGS_PER_METHOD = 2000;
+
+    private final String className;
+    private final List<String> strings = new ArrayList<String>();
+    private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+    private int references;
+
+    /**
+     * @param className the fully qualified name prefix of the pool classes,
+     *                  a running number is appended
+     */
+    public StringPool(String className) {
+        this.className = className;
+    }
+
+    /**
+     * Adds <code>s</code> to the pool if it is not yet contained.
+     *
+     * @return a Java expression that references the pooled string
+     */
+    public String reference(String s) {
+        Integer index = indexes.get(s);
+        if (index == null) {
+            index = strings.size();
+            strings.add(s);
+            indexes.put(s, index);
+        }
+        references++;
+        return getClassName(index / STRINGS_PER_CLASS) + ".S[" + (index % STRINGS_PER_CLASS) + "]";
+    }
+
+    /**
+     * @return the number of distinct strings
+     */
+    public int size() {
+        return strings.size();
+    }
+
+    /**
+     * @return the number of references handed out
+     */
+    public int getReferences() {
+        return references;
+    }
+
+    /**
+     * @return the name of the first pool class
+     */
+    public String getClassName() {
+        return getClassName(0);
+    }
+
+    private String getClassName(int chunk) {
+        return className + chunk;
+    }
+
+    /**
+     * Writes the source files of the pool classes below
+     * <code>directory</code>.
+     *
+     * @return the written files
+     */
+    public List<File> write(File directory) throws IOException {
+        List<File> files = new ArrayList<File>();
+        for (int chunk = 0; chunk * STRINGS_PER_CLASS < Math.max(strings.size(), 1); chunk++) {
+            String name = getClassName(chunk);
+            File file = new File(directory, name.replace('.', File.separatorChar) + ".java");
+            file.getParentFile().mkdirs();
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "US-ASCII"));
+            try {
+                write(out, name, strings.subList(chunk * STRINGS_PER_CLASS,
+                        Math.min(strings.size(), (chunk + 1) * STRINGS_PER_CLASS)));
+            } finally {
+                out.close();
+            }
+            if (out.checkError()) {
+                throw new IOException("Could not write " + file);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    private void write(PrintWriter out, String name, List<String> chunk) {
+        int i = name.lastIndexOf('.');
+
+        out.println("/* Automatically generated by gettext-maven-plugin. Do not edit. */");
+        if (i != -1) {
+            out.println("package " + name.substring(0, i) + ";");
+        }
+        out.println();
+        out.println("final class " + name.substring(i + 1) + " {");
+        out.println();
+        out.println("    static final java.lang.String[] S = new java.lang.String[" + chunk.size() + "];");
+        out.println();
+        out.println("    static {");
+        int methods = (chunk.size() + STRINGS_PER_METHOD - 1) / STRINGS_PER_METHOD;
+        for (int m = 0; m < methods; m++) {
+            out.println("        init" + m + "();");
+        }
+        out.println("    }");
+        for (int m = 0; m < methods; m++) {
+            out.println();
+            out.println("    private static void init" + m + "() {");
+            int end = Math.min(chunk.size(), (m + 1) * STRINGS_PER_METHOD);
+            for (int j = m * STRINGS_PER_METHOD; j < end; j++) {
+                out.println("        S[" + j + "] = " + BundleClassWriter.quote(chunk.get(j)) + ";");
+            }
+            out.println("    }");
+        }
+        out.println();
+        out.println("    private " + name.substring(i + 1) + "() {");
+        out.println("    }");
+        out.println();
+        out.println("}");
+    }
+
+}
@@ -0,0 +1,375 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.DirectoryScanner;
+
+/**
+ * An index of the translations of a set of .po directories, keyed by locale
+ * and {@link Message#getKey() msgctxt and msgid}.
+ * <p>
+ * The index is stored in a binary file that is memory mapped for lookups: a
+ * header, an open addressing table of record offsets and the records
+ * themselves. Each record holds the hash code and chars of its key followed
+ * by the translated forms. The file is rebuilt when a .po file is newer or
+ * the set of .po files changed. Opened indexes are reused as long as their
+ * .po files do not change, so all modules of a build share one index. The
+ * .po files are only checked by the first open of each build, so po files
+ * that modules of the same build update, e.g. with msgmerge, do not cause a
+ * rebuild for every module, while a long-lived JVM picks up changes in the
+ * next build.
+ */
+public class TranslationMemory {
+
+    private static final int MAGIC = 0x47544d31;
+
+    private static final int HEADER_SIZE = 16;
+
+    /** Separates the locale from the message key. */
+    private static final char LOCALE_GLUE = '\u0000';
+
+    private static final Map<String, TranslationMemory> instances = new HashMap<String, TranslationMemory>();
+
+    private final ByteBuffer buffer;
+    private final int signature;
+    private final int tableSize;
+    private final int count;
+    private final long lastModified;
+    private Reference<Object> build;
+
+    private TranslationMemory(ByteBuffer buffer, long lastModified) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a translation memory file");
+        }
+        this.buffer = buffer;
+        this.signature = buffer.getInt(4);
+        this.tableSize = buffer.getInt(8);
+        this.count = buffer.getInt(12);
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Returns the index of the translations in <code>directories</code> for
+     * the build of <code>session</code>. Maven clones the session for each
+     * project, so the build is identified by the execution request, which all
+     * clones share.
+     *
+     * @see #open(File, File[], Object, Log)
+     */
+    public static TranslationMemory open(File file, File[] directories, MavenSession session, Log log)
+            throws IOException {
+        return open(file, directories, (Object) session.getRequest(), log);
+    }
+
+    /**
+     * Returns the index of the translations in <code>directories</code>,
+     * building <code>file</code> first if it is missing or out of date.
+     * Within one build the index is only checked once.
+     *
+     * @param build identifies the build, e.g. the execution request
+     */
+    public static synchronized TranslationMemory open(File file, File[] directories, Object build, Log log)
+            throws IOException {
+        String path = file.getCanonicalPath();
+        List<File> sources = getSources(directories);
+        int signature = getSignature(sources);
+        TranslationMemory memory = instances.get(path);
+        if (memory != null && memory.signature == signature
+                && (memory.build.get() == build || memory.isUpToDate(sources))) {
+            memory.build = new WeakReference<Object>(build);
+            return memory;
+        }
+
+        File mappedFile = file;
+        if (!isUpToDate(file, sources, signature)) {
+            log.info("Building translation memory from " + sources.size() + " po files: " + file);
+            mappedFile = build(file, sources, signature, log);
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(mappedFile, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            memory = new TranslationMemory(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                    mappedFile.lastModified());
+        } finally {
+            // the mapping stays valid after the channel is closed
+            raf.close();
+        }
+        log.info("Loaded translation memory with " + memory.size() + " entries.");
+        memory.build = new WeakReference<Object>(build);
+        instances.put(path, memory);
+        return memory;
+    }
+
+    private static List<File> getSources(File[] directories) {
+        List<File> sources = new ArrayList<File>();
+        for (File directory : directories) {
+            if (!directory.isDirectory()) {
+                continue;
+            }
+            DirectoryScanner ds = new DirectoryScanner();
+            ds.setBasedir(directory);
+            ds.setIncludes(new String[]{"**/*.po"});
+            ds.scan();
+            String[] files = ds.getIncludedFiles();
+            Arrays.sort(files);
+            for (String name : files) {
+                sources.add(new File(directory, name));
+            }
+        }
+        return sources;
+    }
+
+    private static int getSignature(List<File> sources) {
+        int signature = 1;
+        for (File source : sources) {
+            signature = 31 * signature + source.getAbsolutePath().hashCode();
+        }
+        return signature;
+    }
+
+    private static boolean isUpToDate(File file, List<File> sources, int signature) throws IOException {
+        if (!file.exists()) {
+            return false;
+        }
+        for (File source : sources) {
+            if (source.lastModified() > file.lastModified()) {
+                return false;
+            }
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return raf.length() >= HEADER_SIZE && raf.readInt() == MAGIC && raf.readInt() == signature;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @return true, if none of the files the index was built from changed
+     *         since
+     */
+    private boolean isUpToDate(List<File> sources) {
+        for (File source : sources) {
+            if (source.lastModified() > lastModified) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects the translated, non-fuzzy messages of all sources. The first
+     * translation of a key wins.
+     *
+     * @return the written file, which is a temporary file if
+     *         <code>file</code> could not be replaced
+     */
+    private static File build(File file, List<File> sources, int signature, Log log) throws IOException {
+        Map<String, String[]> translations = new LinkedHashMap<String, String[]>();
+        for (File source : sources) {
+            String locale = PoParser.getLocale(source);
+            for (Message message : PoParser.parse(source).getMessages()) {
+                if (!message.isObsolete() && !message.isHeader() && message.isTranslated() && !message.isFuzzy()) {
+                    String key = getKey(locale, message.getKey());
+                    if (!translations.containsKey(key)) {
+                        translations.put(key, message.getMsgstrPlural());
+                    }
+                }
+            }
+        }
+
+        int tableSize = Integer.highestOneBit(Math.max(2, translations.size() * 2) - 1) << 1;
+        int[] table = new int[tableSize];
+        int offset = HEADER_SIZE + tableSize * 4;
+        for (Map.Entry<String, String[]> entry : translations.entrySet()) {
+            int i = PerfectHash.mix(entry.getKey().hashCode()) & (tableSize - 1);
+            while (table[i] != 0) {
+                i = (i + 1) & (tableSize - 1);
+            }
+            table[i] = offset;
+            offset += 12 + entry.getKey().length() * 2;
+            for (String form : entry.getValue()) {
+                offset += 4 + form.length() * 2;
+            }
+            if (offset < 0) {
+                throw new IOException("Translation memory exceeds 2 GB");
+            }
+        }
+
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        File tempFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(signature);
+            out.writeInt(tableSize);
+            out.writeInt(translations.size());
+            for (int value : table) {
+                out.writeInt(value);
+            }
+            for (Map.Entry<String, String[]> entry : translations.entrySet()) {
+                String key = entry.getKey();
+                out.writeInt(key.hashCode());
+                out.writeInt(key.length());
+                out.writeChars(key);
+                out.writeInt(entry.getValue().length);
+                for (String form : entry.getValue()) {
+                    out.writeInt(form.length());
+                    out.writeChars(form);
+                }
+            }
+        } finally {
+            out.close();
+        }
+        if ((!file.exists() || file.delete()) && tempFile.renameTo(file)) {
+            return file;
+        }
+        // a file that is still mapped, e.g. by an earlier build of this JVM,
+        // cannot be replaced on Windows
+        log.warn("Could not replace " + file + ", using " + tempFile + " for this build");
+        tempFile.deleteOnExit();
+        return tempFile;
+    }
+
+    private static String getKey(String locale, String key) {
+        return locale + LOCALE_GLUE + key;
+    }
+
+    /**
+     * @return the number of translations
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param key the key of the message as returned by
+     *            {@link Message#getKey()}
+     * @return the translated forms or null, if there is no translation
+     */
+    public String[] lookup(String locale, String key) {
+        String fullKey = getKey(locale, key);
+        int hash = fullKey.hashCode();
+        int i = PerfectHash.mix(hash) & (tableSize - 1);
+        int offset;
+        while ((offset = buffer.getInt(HEADER_SIZE + i * 4)) != 0) {
+            if (buffer.getInt(offset) == hash && matches(offset + 4, fullKey)) {
+                int position = offset + 8 + fullKey.length() * 2;
+                String[] forms = new String[buffer.getInt(position)];
+                position += 4;
+                for (int f = 0; f < forms.length; f++) {
+                    forms[f] = readString(position);
+                    position += 4 + forms[f].length() * 2;
+                }
+                return forms;
+            }
+            i = (i + 1) & (tableSize - 1);
+        }
+        return null;
+    }
+
+    private boolean matches(int position, String key) {
+        if (buffer.getInt(position) != key.length()) {
+            return false;
+        }
+        position += 4;
+        for (int i = 0; i < key.length(); i++) {
+            if (buffer.getChar(position + i * 2) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readString(int position) {
+        char[] chars = new char[buffer.getInt(position)];
+        position += 4;
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = buffer.getChar(position + i * 2);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Fills in the translations of the untranslated messages of
+     * <code>catalog</code> and appends the messages of <code>template</code>
+     * that <code>catalog</code> lacks, if their exact key has a translation.
+     * Fuzzy messages are left alone. Translations that do not match the
+     * number of plural forms of <code>catalog</code> or that cannot be encoded
+     * in its charset are skipped.
+     *
+     * @return the number of filled in messages
+     */
+    public int prefill(Catalog catalog, Catalog template, String locale) {
+        int pluralCount = catalog.getPluralForms().getCount();
+        CharsetEncoder encoder = catalog.getCharset().newEncoder();
+        int filled = 0;
+        for (Message message : template.getMessages()) {
+            if (message.isObsolete() || message.isHeader()) {
+                continue;
+            }
+            Message existing = catalog.getMessage(message.getKey());
+            if (existing != null && (existing.isTranslated() || existing.isFuzzy())) {
+                continue;
+            }
+            String[] forms = lookup(locale, message.getKey());
+            if (forms == null || forms.length != (message.isPlural() ? pluralCount : 1) || !canEncode(encoder, forms)) {
+                continue;
+            }
+            if (existing == null) {
+                existing = new Message();
+                existing.setMsgctxt(message.getMsgctxt());
+                existing.setMsgid(message.getMsgid());
+                existing.setMsgidPlural(message.getMsgidPlural());
+                existing.getComments().addAll(message.getComments());
+                catalog.message(existing);
+            }
+            existing.setMsgstrPlural(forms);
+            filled++;
+        }
+        return filled;
+    }
+
+    private boolean canEncode(CharsetEncoder encoder, String[] forms) {
+        for (String form : forms) {
+            if (!encoder.canEncode(form)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,58 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class AbstractGettextMojoTest {
+
+    @Test
+    public void testRelativePath() {
+        File base = new File("project", "src");
+        assertEquals("a/B.java", AbstractGettextMojo.getRelativePath(base, new File(base, "a/B.java")));
+        assertNull(AbstractGettextMojo.getRelativePath(base, new File("project", "srcx/B.java")));
+        assertNull(AbstractGettextMojo.getRelativePath(base, base));
+    }
+
+    @Test
+    public void testSourceFilesOutsideFirstDirectory() {
+        File sourceDirectory = new File("project/src/main/java").getAbsoluteFile();
+        File webapp = new File("project/src/main/webapp").getAbsoluteFile();
+        File shared = new File("shared/web").getAbsoluteFile();
+        List<File> directories = new ArrayList<File>();
+        directories.add(sourceDirectory);
+        List<String> files = new ArrayList<String>();
+
+        AbstractGettextMojo.addSourceFile(directories, files, sourceDirectory, new File(sourceDirectory, "a/B.java"));
+        AbstractGettextMojo.addSourceFile(directories, files, webapp, new File(webapp, "index.jsp"));
+        AbstractGettextMojo.addSourceFile(directories, files, shared, new File(shared, "x/header.jsp"));
+        AbstractGettextMojo.addSourceFile(directories, files, webapp, new File(webapp, "WEB-INF/main.jsp"));
+        // extra files inside the source directory stay relative to it
+        AbstractGettextMojo.addSourceFile(directories, files, sourceDirectory.getParentFile(),
+                new File(sourceDirectory, "a/c.jsp"));
+
+        assertEquals(Arrays.asList("a/B.java", "index.jsp", "x/header.jsp", "WEB-INF/main.jsp", "a/c.jsp"), files);
+        assertEquals(Arrays.asList(sourceDirectory, webapp, shared), directories);
+    }
+
+}
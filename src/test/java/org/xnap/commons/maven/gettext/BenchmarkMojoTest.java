@@ -0,0 +1,30 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class BenchmarkMojoTest {
+
+    @Test
+    public void testQuote() {
+        assertEquals("\"org.example.Messages\"", BenchmarkMojo.quote("org.example.Messages"));
+        assertEquals("\"a\\\"b\\\\c\"", BenchmarkMojo.quote("a\"b\\c"));
+        assertEquals("\"\\n\\r\\t\\u0001\u00e4\"", BenchmarkMojo.quote("\n\r\t\u0001\u00e4"));
+    }
+
+}
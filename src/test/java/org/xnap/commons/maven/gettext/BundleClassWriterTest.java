@@ -0,0 +1,190 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BundleClassWriterTest {
+
+    private static final PluralForms ARABIC = PluralForms.parse("nplurals=6; plural=(n==0 ? 0 : n==1 ? 1 : "
+            + "n==2 ? 2 : n%100>=3 && n%100<=10 ? 3 : n%100>=11 ? 4 : 5);");
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("bundles", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        List<Message> messages = new ArrayList<Message>();
+        messages.add(message(null, "Hello", "Hallo"));
+        messages.add(message("menu", "File", "Datei"));
+        messages.add(plural("one file", "{0} files", "eine Datei", "{0} Dateien"));
+        // equal hash codes
+        messages.add(message(null, "Aa", "x"));
+        messages.add(message(null, "BB", "y"));
+
+        for (boolean perfectHash : new boolean[]{false, true}) {
+            String className = "test.Messages" + (perfectHash ? "P" : "H") + "_de";
+            BundleClassWriter writer = new BundleClassWriter(className, messages, PluralForms.GERMANIC);
+            writer.setMessageFormats(true);
+            if (perfectHash) {
+                assertTrue(writer.usePerfectHash());
+            }
+            Object bundle = compile(className, writer, null);
+
+            assertEquals("Hallo", ((ResourceBundle) bundle).getString("Hello"));
+            assertEquals("Datei", ((ResourceBundle) bundle).getString("menu" + Message.CONTEXT_GLUE + "File"));
+            assertEquals("x", ((ResourceBundle) bundle).getString("Aa"));
+            assertEquals("y", ((ResourceBundle) bundle).getString("BB"));
+            // like msgfmt, getString returns the singular of plural entries
+            assertEquals("eine Datei", ((ResourceBundle) bundle).getString("one file"));
+            Method lookupPlural = bundle.getClass().getMethod("lookupPlural", String.class, long.class);
+            assertEquals("eine Datei", lookupPlural.invoke(bundle, "one file", 1L));
+            assertEquals("{0} Dateien", lookupPlural.invoke(bundle, "one file", 5L));
+            assertNull(lookupPlural.invoke(bundle, "missing", 5L));
+            Method formatPlural = bundle.getClass().getMethod("formatPlural", String.class, long.class, Object[].class);
+            assertEquals("x Dateien", formatPlural.invoke(bundle, "one file", 5L, new Object[]{"x"}));
+        }
+    }
+
+    /**
+     * Many plural forms with compiled patterns need more constants and code
+     * per entry than the defaults of the table sizes allow for.
+     */
+    @Test
+    public void testManyPluralForms() throws Exception {
+        List<Message> messages = new ArrayList<Message>();
+        for (int i = 0; i < 20000; i++) {
+            String[] forms = new String[ARABIC.getCount()];
+            for (int f = 0; f < forms.length; f++) {
+                forms[f] = "form" + f + " {0} of message " + i;
+            }
+            messages.add(plural("file {0} " + i, "files {0} " + i, forms));
+        }
+
+        BundleClassWriter writer = new BundleClassWriter("test.Large_ar", messages, ARABIC);
+        writer.setMessageFormats(true);
+        Object bundle = compile("test.Large_ar", writer, null);
+        Method formatPlural = bundle.getClass().getMethod("formatPlural", String.class, long.class, Object[].class);
+        assertEquals("form5 x of message 19999", formatPlural.invoke(bundle, "file {0} 19999", 100L, new Object[]{"x"}));
+
+        StringPool pool = new StringPool("test.Pooled_StringPool");
+        writer = new BundleClassWriter("test.Pooled_ar", messages, ARABIC);
+        writer.setMessageFormats(true);
+        writer.setStringPool(pool);
+        bundle = compile("test.Pooled_ar", writer, pool);
+        formatPlural = bundle.getClass().getMethod("formatPlural", String.class, long.class, Object[].class);
+        assertEquals("form1 x of message 7", formatPlural.invoke(bundle, "file {0} 7", 1L, new Object[]{"x"}));
+    }
+
+    @Test
+    public void testParentFallback() throws Exception {
+        List<Message> messages = new ArrayList<Message>();
+        messages.add(message(null, "Hello", "Hallo"));
+        messages.add(plural("one file", "{0} files", "eine Datei", "{0} Dateien"));
+        List<Message> regional = new ArrayList<Message>();
+        regional.add(message(null, "Hello", "Servus"));
+
+        File sources = new File(directory, "sources");
+        File classes = new File(directory, "classes");
+        List<File> files = new ArrayList<File>();
+        files.add(BundleClassWriter.writeBaseClass("test.Fallback_Base", true, sources));
+        for (String locale : new String[]{"de", "de_AT"}) {
+            BundleClassWriter writer = new BundleClassWriter("test.Fallback_" + locale,
+                    locale.equals("de") ? messages : regional, PluralForms.GERMANIC);
+            writer.setBaseClass("test.Fallback_Base");
+            writer.setMessageFormats(true);
+            files.add(writer.write(sources));
+        }
+        new BundleCompiler(new SystemStreamLog(), null).compile(files, classes);
+        ClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, getClass().getClassLoader());
+        ResourceBundle bundle = ResourceBundle.getBundle("test.Fallback", new Locale("de", "AT"), loader);
+
+        Class<?> base = loader.loadClass("test.Fallback_Base");
+        assertTrue(base.isInstance(bundle));
+        Method lookupPlural = base.getMethod("lookupPlural", String.class, long.class);
+        assertEquals("Servus", lookupPlural.invoke(bundle, "Hello", 1L));
+        assertEquals("{0} Dateien", lookupPlural.invoke(bundle, "one file", 2L));
+        assertNull(lookupPlural.invoke(bundle, "missing", 2L));
+        Method formatPlural = base.getMethod("formatPlural", String.class, long.class, Object[].class);
+        assertEquals("x Dateien", formatPlural.invoke(bundle, "one file", 2L, new Object[]{"x"}));
+        Method format = base.getMethod("format", String.class, Object[].class);
+        assertNull(format.invoke(bundle, "missing", new Object[0]));
+    }
+
+    @Test
+    public void testQuote() {
+        assertEquals("\"a\\\"b\\\\c\\n\\u00e4\"", BundleClassWriter.quote("a\"b\\c\n\u00e4"));
+        assertTrue(BundleClassWriter.quote("\u20ac").contains("\\u20ac"));
+    }
+
+    private Object compile(String className, BundleClassWriter writer, StringPool pool) throws Exception {
+        File sources = new File(directory, "sources");
+        File classes = new File(directory, "classes");
+        List<File> files = new ArrayList<File>();
+        files.add(writer.write(sources));
+        if (pool != null) {
+            files.addAll(pool.write(sources));
+        }
+        new BundleCompiler(new SystemStreamLog(), null).compile(files, classes);
+        ClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, getClass().getClassLoader());
+        return loader.loadClass(className).getDeclaredConstructor().newInstance();
+    }
+
+    static Message message(String msgctxt, String msgid, String msgstr) {
+        Message message = new Message();
+        message.setMsgctxt(msgctxt);
+        message.setMsgid(msgid);
+        message.setMsgstr(msgstr);
+        return message;
+    }
+
+    static Message plural(String msgid, String msgidPlural, String... msgstr) {
+        Message message = new Message();
+        message.setMsgid(msgid);
+        message.setMsgidPlural(msgidPlural);
+        message.setMsgstrPlural(msgstr);
+        return message;
+    }
+
+}
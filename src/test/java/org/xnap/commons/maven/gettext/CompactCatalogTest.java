@@ -0,0 +1,221 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompactCatalogTest {
+
+    private static final String PO = "# German translations\n"
+            + "msgid \"\"\n"
+            + "msgstr \"\"\n"
+            + "\"Content-Type: text/plain; charset=UTF-8\\n\"\n"
+            + "\"Plural-Forms: nplurals=2; plural=(n != 1);\\n\"\n"
+            + "\n"
+            + "#: Main.java:10\r\n"
+            + "msgid \"Hello\"\r\n"
+            + "msgstr \"Hallo\"\r\n"
+            + "\n"
+            + "#, c-format\n"
+            + "msgctxt \"menu\"\n"
+            + "msgid \"File\"\n"
+            + "msgstr \"Da\"\n"
+            + "\"tei\"\n"
+            + "\n"
+            + "msgid \"Tab\\tand \\\"quote\\\"\\n\\x41\\101\\\\\"\n"
+            + "msgstr \"\u00e4\"\n"
+            + "\n"
+            + "msgid \"one file\"\n"
+            + "msgid_plural \"{0} files\"\n"
+            + "msgstr[0] \"eine Datei\"\n"
+            + "msgstr[2] \"{0} Dateien\"\n"
+            + "\n"
+            + "msgid \"Untranslated\"\n"
+            + "msgstr \"\"\n"
+            + "\n"
+            + "#~ msgid \"Old\"\n"
+            + "#~ msgstr \"Alt\"\n"
+            + "\n"
+            + "msgctxt \"\"\n"
+            + "msgid \"Hello\"\n"
+            + "msgstr \"Hallo (leer)\"\n";
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("compact", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        org.codehaus.plexus.util.FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testParse() throws IOException {
+        CompactCatalog catalog = parse(PO);
+        List<Message> expected = PoParser.parse(write("de.po", PO)).getMessages();
+        assertEquals(expected.size(), catalog.size());
+        for (int i = 0; i < catalog.size(); i++) {
+            assertMessage(expected.get(i), catalog.getMessage(i));
+        }
+
+        assertEquals(0, catalog.getHeader());
+        assertEquals("UTF-8", catalog.getCharset().name());
+        assertEquals("Datei", catalog.getMsgstr(2));
+        assertEquals("Tab\tand \"quote\"\nAA\\", catalog.getMsgid(3));
+        assertArrayEquals(new String[]{"eine Datei", "", "{0} Dateien"}, catalog.getMsgstrPlural(4));
+        assertEquals("", catalog.getMsgstr(5));
+        assertTrue(catalog.isObsolete(6));
+        assertEquals(Arrays.asList("#, c-format"), catalog.getComments(2));
+    }
+
+    @Test
+    public void testFind() throws IOException {
+        CompactCatalog catalog = parse(PO);
+        assertEquals(1, catalog.find(null, "Hello"));
+        assertEquals(2, catalog.find("menu", "File"));
+        assertEquals(7, catalog.find("", "Hello"));
+        assertEquals(-1, catalog.find(null, "File"));
+        assertEquals(-1, catalog.find("menu", "Hello"));
+        assertEquals(-1, catalog.find(null, "Missing"));
+        assertEquals(-1, catalog.find(null, "Old"));
+    }
+
+    @Test
+    public void testSortedOrder() throws IOException {
+        CompactCatalog catalog = parse(PO);
+        int[] order = catalog.getSortedOrder();
+        List<String> keys = new ArrayList<String>();
+        for (int index : order) {
+            keys.add(catalog.getMessage(index).getKey());
+        }
+        assertEquals(Arrays.asList("", "Hello", "Tab\tand \"quote\"\nAA\\", "Untranslated", "one file",
+                Message.CONTEXT_GLUE + "Hello", "menu" + Message.CONTEXT_GLUE + "File", "Old"), keys);
+    }
+
+    @Test
+    public void testStringsLongerThanPage() throws IOException {
+        StringBuilder po = new StringBuilder();
+        List<String> msgids = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            StringBuilder msgid = new StringBuilder();
+            // three strings fill more than a page, the last ones need a page of their own
+            int length = i < 3 ? CompactCatalog.PAGE_SIZE / 3 + 1 : CompactCatalog.PAGE_SIZE * (i - 1) + 7;
+            for (int j = 0; j < length; j++) {
+                msgid.append((char) ('a' + (i + j) % 26));
+            }
+            msgids.add(msgid.toString());
+            po.append("msgid \"").append(msgid).append("\"\nmsgstr \"").append(i).append("\"\n\n");
+        }
+        po.append("msgid \"short\"\nmsgstr \"").append(msgids.get(3)).append("\"\n");
+
+        CompactCatalog catalog = parse(po.toString());
+        assertEquals(6, catalog.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(msgids.get(i), catalog.getMsgid(i));
+            assertEquals(String.valueOf(i), catalog.getMsgstr(i));
+            assertEquals(i, catalog.find(null, msgids.get(i)));
+        }
+        assertEquals(msgids.get(3), catalog.getMsgstr(5));
+        // the msgstr of "short" is stored only once
+        assertEquals(11, catalog.getStringCount());
+    }
+
+    @Test
+    public void testWriteRoundTrip() throws IOException {
+        CompactCatalog catalog = CompactCatalog.parse(write("de.po", PO));
+        File copy = new File(directory, "copy.po");
+        catalog.write(copy, false);
+        CompactCatalog reread = CompactCatalog.parse(copy);
+        List<Message> expected = catalog.getMessages();
+        List<Message> actual = PoParser.parse(copy).getMessages();
+        assertEquals(expected.size(), reread.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertMessage(expected.get(i), reread.getMessage(i));
+            assertMessage(expected.get(i), actual.get(i));
+        }
+
+        File sorted = new File(directory, "sorted.po");
+        catalog.write(sorted, true);
+        reread = CompactCatalog.parse(sorted);
+        int[] order = catalog.getSortedOrder();
+        for (int i = 0; i < order.length; i++) {
+            assertMessage(catalog.getMessage(order[i]), reread.getMessage(i));
+        }
+    }
+
+    @Test
+    public void testDeclaredCharset() throws IOException {
+        String po = PO.replace("charset=UTF-8", "charset=ISO-8859-1");
+        File file = new File(directory, "latin1.po");
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1");
+        try {
+            out.write(po);
+        } finally {
+            out.close();
+        }
+        CompactCatalog catalog = CompactCatalog.parse(file);
+        assertEquals("ISO-8859-1", catalog.getCharset().name());
+        assertEquals("\u00e4", catalog.getMsgstr(3));
+    }
+
+    private static CompactCatalog parse(String po) throws IOException {
+        CompactCatalog catalog = new CompactCatalog();
+        catalog.parse(new StringReader(po), "test.po");
+        return catalog;
+    }
+
+    private File write(String name, String po) throws IOException {
+        File file = new File(directory, name);
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            out.write(po);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static void assertMessage(Message expected, Message actual) {
+        assertEquals(expected.getMsgctxt(), actual.getMsgctxt());
+        assertEquals(expected.getMsgid(), actual.getMsgid());
+        assertEquals(expected.getMsgidPlural(), actual.getMsgidPlural());
+        assertArrayEquals(expected.getMsgstrPlural(), actual.getMsgstrPlural());
+        assertEquals(expected.getComments(), actual.getComments());
+        assertEquals(expected.isObsolete(), actual.isObsolete());
+    }
+
+}
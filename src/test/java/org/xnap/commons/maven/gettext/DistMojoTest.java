@@ -0,0 +1,261 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DistMojoTest {
+
+    private File directory;
+
+    private File poDirectory;
+
+    private File outputDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("dist", "");
+        directory.delete();
+        poDirectory = new File(directory, "po");
+        poDirectory.mkdirs();
+        outputDirectory = new File(directory, "classes");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testSharedStringPool() throws Exception {
+        write("de", BundleClassWriterTest.message(null, "Hello", "Hallo"),
+                BundleClassWriterTest.message(null, "Bye", "Tsch\u00fcss"),
+                BundleClassWriterTest.plural("one file", "{0} files", "eine Datei", "{0} Dateien"));
+        write("de_AT", BundleClassWriterTest.message(null, "Hello", "Servus"),
+                BundleClassWriterTest.message(null, "Bye", "Tsch\u00fcss"),
+                BundleClassWriterTest.plural("one file", "{0} files", "eine Datei", "{0} Dateien"));
+        write("fr", BundleClassWriterTest.message(null, "Hello", "Bonjour"));
+        DistMojo mojo = createMojo();
+        mojo.execute();
+
+        ResourceBundle regional = getBundle(new Locale("de", "AT"));
+        assertEquals("test.Messages_de_AT", regional.getClass().getName());
+        // only the entries that differ from de are in the regional class
+        assertEquals("Servus", lookup(regional, "Hello"));
+        assertNull(lookup(regional, "Bye"));
+        assertNull(lookup(regional, "one file"));
+        // the others resolve via the parent at runtime
+        assertEquals("Servus", regional.getString("Hello"));
+        assertEquals("Tsch\u00fcss", regional.getString("Bye"));
+        assertEquals("eine Datei", regional.getString("one file"));
+        Method lookupPlural = regional.getClass().getMethod("lookupPlural", String.class, Long.TYPE);
+        assertEquals("{0} Dateien", lookupPlural.invoke(regional, "one file", 2L));
+        assertEquals("Bonjour", getBundle(Locale.FRENCH).getString("Hello"));
+
+        // only the pool of the language whose catalogs changed is rebuilt
+        long past = System.currentTimeMillis() - 20000;
+        for (File file : FileUtils.getFiles(poDirectory, "*.po", null)) {
+            file.setLastModified(past);
+        }
+        for (File file : FileUtils.getFiles(outputDirectory, "**/*", null)) {
+            file.setLastModified(past + 10000);
+        }
+        write("de_AT", BundleClassWriterTest.message(null, "Hello", "Gr\u00fc\u00df Gott"),
+                BundleClassWriterTest.message(null, "Bye", "Tsch\u00fcss"));
+        mojo = createMojo();
+        assertTrue(mojo.isPoolStale("de", mojo.groupByLanguage(new String[]{"de.po", "de_AT.po"}).get("de")));
+        mojo.execute();
+
+        assertTrue(mojo.getPoolFile("de").lastModified() > past + 10000);
+        assertTrue(mojo.getOutputFile("de").lastModified() > past + 10000);
+        assertEquals(past + 10000, mojo.getPoolFile("fr").lastModified());
+        assertEquals(past + 10000, mojo.getOutputFile("fr").lastModified());
+        regional = getBundle(new Locale("de", "AT"));
+        assertEquals("Gr\u00fc\u00df Gott", regional.getString("Hello"));
+        lookupPlural = regional.getClass().getMethod("lookupPlural", String.class, Long.TYPE);
+        assertEquals("{0} Dateien", lookupPlural.invoke(regional, "one file", 2L));
+    }
+
+    @Test
+    public void testPrune() throws Exception {
+        writeKeys("2024-01-01 10:00+0000");
+        List<Message> messages = new ArrayList<Message>();
+        messages.add(TranslationMemoryTest.header("UTF-8"));
+        messages.add(BundleClassWriterTest.message(null, "Used", "Benutzt"));
+        messages.add(BundleClassWriterTest.message(null, "Other", "Anderes"));
+        messages.add(BundleClassWriterTest.message(null, "No reference", "Ohne Referenz"));
+        messages.add(BundleClassWriterTest.message("menu", "File", "Datei"));
+        messages.add(BundleClassWriterTest.message(null, "Unused", "Unbenutzt"));
+        messages.add(BundleClassWriterTest.message(null, "Untranslated", ""));
+
+        DistMojo mojo = createMojo();
+        assertSame(messages, mojo.prune("de", messages));
+
+        // the messages of keys.pot and the header are kept
+        mojo.pruneMessages = true;
+        assertEquals(Arrays.asList("", "Used", "Other", "No reference", "menu" + Message.CONTEXT_GLUE + "File"),
+                getKeys(mojo.prune("de", messages)));
+
+        // only references below the roots count, messages without any are kept
+        mojo = createMojo();
+        mojo.pruneMessages = true;
+        mojo.pruneSourceRoots = new String[]{"com/app"};
+        assertEquals(Arrays.asList("", "Used", "No reference", "menu" + Message.CONTEXT_GLUE + "File"),
+                getKeys(mojo.prune("de", messages)));
+
+        mojo = createMojo();
+        mojo.pruneMessages = true;
+        mojo.pruneSourceRoots = new String[]{"com\\app\\ui\\", "org/other"};
+        assertEquals(Arrays.asList("", "No reference", "menu" + Message.CONTEXT_GLUE + "File"),
+                getKeys(mojo.prune("de", messages)));
+    }
+
+    @Test
+    public void testKeysChanged() throws Exception {
+        File input = new File(poDirectory, "de.po");
+        write("de", BundleClassWriterTest.message(null, "Used", "Benutzt"));
+        input.setLastModified(System.currentTimeMillis() - 20000);
+        File output = new File(directory, "Messages_de.class");
+        FileUtils.fileWrite(output.getPath(), "");
+
+        writeKeys("2024-01-01 10:00+0000");
+        DistMojo mojo = createMojo();
+        assertFalse(mojo.isNewer(input, output));
+        mojo.pruneMessages = true;
+        // no digest of the keys the bundles were created from
+        assertTrue(mojo.isNewer(input, output));
+        mojo.storeKeysDigest();
+        assertFalse(createPruningMojo().isNewer(input, output));
+
+        // xgettext updates the creation date on every run
+        writeKeys("2024-02-01 12:00+0000");
+        assertFalse(createPruningMojo().isNewer(input, output));
+
+        writeKeys("2024-02-01 12:00+0000", "New");
+        assertTrue(createPruningMojo().isNewer(input, output));
+
+        writeKeys("2024-01-01 10:00+0000");
+        mojo = createPruningMojo();
+        mojo.pruneSourceRoots = new String[]{"com/app"};
+        assertTrue(mojo.isNewer(input, output));
+    }
+
+    @Test
+    public void testWithoutCreationDate() {
+        String header = "msgid \"\"\nmsgstr \"\"\n\"Project-Id-Version: test\\n\"\n";
+        assertEquals(header, DistMojo.withoutCreationDate(
+                (header + "\"POT-Creation-Date: 2024-01-01 10:00+0000\\n\"\n").getBytes()));
+        assertEquals(header + "#: POT-Creation-Date\n",
+                DistMojo.withoutCreationDate((header + "#: POT-Creation-Date\n").getBytes()));
+    }
+
+    private DistMojo createPruningMojo() {
+        DistMojo mojo = createMojo();
+        mojo.pruneMessages = true;
+        return mojo;
+    }
+
+    /**
+     * Writes a keys.pot file like xgettext with the given additional
+     * messages.
+     */
+    private void writeKeys(String creationDate, String... msgids) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("msgid \"\"\nmsgstr \"\"\n")
+                .append("\"Project-Id-Version: test\\n\"\n")
+                .append("\"POT-Creation-Date: ").append(creationDate).append("\\n\"\n")
+                .append("\"Content-Type: text/plain; charset=UTF-8\\n\"\n\n");
+        sb.append("#: com/app/Main.java:3\nmsgid \"Used\"\nmsgstr \"\"\n\n");
+        sb.append("#: com/application/Other.java:1\nmsgid \"Other\"\nmsgstr \"\"\n\n");
+        sb.append("msgid \"No reference\"\nmsgstr \"\"\n\n");
+        sb.append("#: com/app/ui/Menu.java:7 org/other/Menu.java:9\nmsgctxt \"menu\"\nmsgid \"File\"\nmsgstr \"\"\n\n");
+        sb.append("#~ msgid \"Unused\"\n#~ msgstr \"\"\n\n");
+        for (String msgid : msgids) {
+            sb.append("#: com/app/Main.java:5\nmsgid \"").append(msgid).append("\"\nmsgstr \"\"\n\n");
+        }
+        FileUtils.fileWrite(new File(poDirectory, "keys.pot").getPath(), "UTF-8", sb.toString());
+    }
+
+    private static List<String> getKeys(List<Message> messages) {
+        List<String> keys = new ArrayList<String>();
+        for (Message message : messages) {
+            keys.add(message.getKey());
+        }
+        return keys;
+    }
+
+    private DistMojo createMojo() {
+        DistMojo mojo = new DistMojo();
+        MavenProject project = new MavenProject();
+        Build build = new Build();
+        build.setDirectory(new File(directory, "target").getPath());
+        project.setBuild(build);
+        mojo.project = project;
+        mojo.outputDirectory = outputDirectory;
+        mojo.poDirectory = poDirectory;
+        mojo.keysFile = "keys.pot";
+        mojo.targetBundle = "test.Messages";
+        mojo.outputFormat = "class";
+        mojo.javaVersion = "2";
+        mojo.sourceLocale = "en";
+        mojo.generator = "plugin";
+        mojo.lookupTable = "hashmap";
+        mojo.sharedStringPool = true;
+        return mojo;
+    }
+
+    private ResourceBundle getBundle(Locale locale) throws IOException {
+        // a new class loader for each lookup, so regenerated classes are loaded
+        ClassLoader loader = new URLClassLoader(new URL[]{outputDirectory.toURI().toURL()});
+        return ResourceBundle.getBundle("test.Messages", locale, loader);
+    }
+
+    private static Object lookup(ResourceBundle bundle, String msgid) throws Exception {
+        Object value = bundle.getClass().getMethod("lookup", String.class).invoke(bundle, msgid);
+        return value instanceof String[] ? ((String[]) value)[0] : value;
+    }
+
+    private void write(String locale, Message... messages) throws IOException {
+        List<Message> entries = new ArrayList<Message>();
+        entries.add(TranslationMemoryTest.header("UTF-8"));
+        for (Message message : messages) {
+            entries.add(message);
+        }
+        PoWriter.write(new File(poDirectory, locale + ".po"), entries);
+    }
+
+}
@@ -0,0 +1,59 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MessageFormatPatternTest {
+
+    private static final char ARGUMENT = MessageFormatPattern.ARGUMENT;
+
+    @Test
+    public void testLiteral() {
+        String compiled = MessageFormatPattern.compile("Hello");
+        assertEquals("Hello", compiled);
+        assertTrue(MessageFormatPattern.isLiteral(compiled));
+    }
+
+    @Test
+    public void testArguments() {
+        String compiled = MessageFormatPattern.compile("{0} of {12}");
+        assertEquals(ARGUMENT + "\u0000 of " + ARGUMENT + "\u000c", compiled);
+        assertFalse(MessageFormatPattern.isLiteral(compiled));
+    }
+
+    @Test
+    public void testQuotes() {
+        assertEquals("It's {0}", MessageFormatPattern.compile("It''s '{0}'"));
+        assertEquals("'" + ARGUMENT + "\u0001'", MessageFormatPattern.compile("''{1}''"));
+    }
+
+    @Test
+    public void testNotCompiled() {
+        assertNull(MessageFormatPattern.compile("{0,number}"));
+        assertNull(MessageFormatPattern.compile("{0,choice,0#none|1#one}"));
+        assertNull(MessageFormatPattern.compile("{name}"));
+        assertNull(MessageFormatPattern.compile("{}"));
+        assertNull(MessageFormatPattern.compile("{0"));
+        assertNull(MessageFormatPattern.compile("a" + ARGUMENT));
+    }
+
+}
@@ -0,0 +1,117 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class PerfectHashTest {
+
+    @Test
+    public void testSlots() {
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++) {
+            keys.add("message " + i);
+        }
+        PerfectHash hash = PerfectHash.create(keys);
+        assertEquals(2 * hash.getBucketCount(), hash.getDisplacementData().length());
+        assertSlots(keys, hash);
+    }
+
+    /**
+     * Random sets of this size contain keys with equal hash codes.
+     */
+    @Test
+    public void testRandomKeys() {
+        Random random = new Random(42);
+        Set<String> keys = new HashSet<String>();
+        Set<Integer> hashCodes = new HashSet<Integer>();
+        boolean equalHashCodes = false;
+        while (keys.size() < 200000) {
+            char[] chars = new char[1 + random.nextInt(12)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = (char) (' ' + random.nextInt(95));
+            }
+            String key = new String(chars);
+            if (keys.add(key)) {
+                equalHashCodes |= !hashCodes.add(key.hashCode());
+            }
+        }
+        assertTrue(equalHashCodes);
+        List<String> list = new ArrayList<String>(keys);
+        assertSlots(list, PerfectHash.create(list));
+    }
+
+    @Test
+    public void testSingleKey() {
+        PerfectHash hash = PerfectHash.create(Collections.singletonList("Hello"));
+        assertEquals(1, hash.getSize());
+        assertEquals(0, hash.getSlot("Hello"));
+    }
+
+    @Test
+    public void testEqualHashCodes() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        List<String> keys = Arrays.asList("Hello", "Aa", "BB");
+        assertSlots(keys, PerfectHash.create(keys));
+    }
+
+    @Test
+    public void testManyEqualHashCodes() {
+        List<String> keys = new ArrayList<String>();
+        // all 64 combinations of "Aa" and "BB" of length 12 have the same hash code
+        for (int i = 0; i < 64; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int bit = 0; bit < 6; bit++) {
+                sb.append((i & (1 << bit)) != 0 ? "Aa" : "BB");
+            }
+            keys.add(sb.toString());
+        }
+        for (int i = 0; i < 5000; i++) {
+            keys.add("message " + i);
+        }
+        assertSlots(keys, PerfectHash.create(keys));
+    }
+
+    @Test
+    public void testDuplicateKeys() {
+        assertNull(PerfectHash.create(Arrays.asList("Hello", "Hello")));
+    }
+
+    private void assertSlots(List<String> keys, PerfectHash hash) {
+        assertEquals(keys.size(), hash.getSize());
+        boolean[] used = new boolean[keys.size()];
+        for (String key : keys) {
+            int slot = hash.getSlot(key);
+            assertTrue(key, slot >= 0 && slot < keys.size());
+            assertFalse(key, used[slot]);
+            used[slot] = true;
+        }
+    }
+
+}
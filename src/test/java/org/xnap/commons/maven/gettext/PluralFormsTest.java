@@ -0,0 +1,78 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class PluralFormsTest {
+
+    @Test
+    public void testGermanic() {
+        assertEquals(2, PluralForms.GERMANIC.getCount());
+        assertEquals(1, PluralForms.GERMANIC.evaluate(0));
+        assertEquals(0, PluralForms.GERMANIC.evaluate(1));
+        assertEquals(1, PluralForms.GERMANIC.evaluate(2));
+    }
+
+    @Test
+    public void testSlavic() {
+        PluralForms forms = PluralForms.parse("nplurals=3; plural=(n%10==1 && n%100!=11 ? 0 : "
+                + "n%10>=2 && n%10<=4 && (n%100<10 || n%100>=20) ? 1 : 2);");
+        assertEquals(3, forms.getCount());
+        assertEquals(0, forms.evaluate(1));
+        assertEquals(1, forms.evaluate(2));
+        assertEquals(2, forms.evaluate(5));
+        assertEquals(2, forms.evaluate(11));
+        assertEquals(2, forms.evaluate(12));
+        assertEquals(0, forms.evaluate(21));
+        assertEquals(1, forms.evaluate(22));
+        assertEquals(2, forms.evaluate(112));
+    }
+
+    @Test
+    public void testSingleForm() {
+        PluralForms forms = PluralForms.parse("nplurals=1; plural=0;");
+        assertEquals(1, forms.getCount());
+        assertEquals(0, forms.evaluate(0));
+        assertEquals(0, forms.evaluate(7));
+    }
+
+    @Test
+    public void testOutOfRange() {
+        // gettext uses the first form for indexes beyond nplurals
+        PluralForms forms = PluralForms.parse("nplurals=2; plural=n;");
+        assertEquals(1, forms.evaluate(1));
+        assertEquals(0, forms.evaluate(5));
+    }
+
+    @Test
+    public void testInvalid() {
+        try {
+            PluralForms.parse("nplurals=2;");
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            PluralForms.parse("nplurals=0; plural=0;");
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
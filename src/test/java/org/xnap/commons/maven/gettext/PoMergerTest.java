@@ -0,0 +1,152 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PoMergerTest {
+
+    @Test
+    public void testMerge() {
+        Catalog catalog = new Catalog();
+        catalog.message(header("2000-01-01 00:00+0000", "nplurals=2; plural=(n != 1);"));
+        Message hello = BundleClassWriterTest.message(null, "Hello", "Hallo");
+        hello.getComments().addAll(Arrays.asList("# greeting", "#: Old.java:1"));
+        catalog.message(hello);
+        catalog.message(BundleClassWriterTest.message(null, "Old", "Alt"));
+        catalog.message(BundleClassWriterTest.message(null, "Untranslated", ""));
+
+        Catalog template = new Catalog();
+        template.message(header("2020-01-01 00:00+0000", null));
+        Message newHello = BundleClassWriterTest.message(null, "Hello", "");
+        newHello.getComments().addAll(Arrays.asList("#. extracted", "#: New.java:2", "#, java-format"));
+        template.message(newHello);
+        template.message(BundleClassWriterTest.message(null, "New", ""));
+
+        PoMerger merger = new PoMerger(null);
+        Catalog merged = merger.merge(catalog, template, "de");
+        List<Message> messages = merged.getMessages();
+        assertEquals(4, messages.size());
+        assertTrue(merged.getHeader().getMsgstr().contains("POT-Creation-Date: 2020-01-01 00:00+0000\n"));
+        assertEquals("Hallo", messages.get(1).getMsgstr());
+        assertEquals(Arrays.asList("# greeting", "#. extracted", "#: New.java:2", "#, java-format"),
+                messages.get(1).getComments());
+        assertEquals("New", messages.get(2).getMsgid());
+        assertEquals("", messages.get(2).getMsgstr());
+        assertEquals("Old", messages.get(3).getMsgid());
+        assertTrue(messages.get(3).isObsolete());
+
+        assertEquals(1, merger.getTranslated());
+        assertEquals(0, merger.getFilled());
+        assertEquals(1, merger.getObsoleted());
+        assertEquals(1, merger.getUntranslated());
+    }
+
+    @Test
+    public void testRevive() {
+        Catalog catalog = new Catalog();
+        Message file = BundleClassWriterTest.message("menu", "File", "Datei");
+        file.setObsolete(true);
+        catalog.message(file);
+
+        Catalog template = new Catalog();
+        template.message(BundleClassWriterTest.message("menu", "File", ""));
+
+        PoMerger merger = new PoMerger(null);
+        Catalog merged = merger.merge(catalog, template, "de");
+        assertEquals(2, merged.getMessages().size());
+        Message revived = merged.getMessage("menu" + Message.CONTEXT_GLUE + "File");
+        assertEquals("Datei", revived.getMsgstr());
+        assertFalse(revived.isObsolete());
+        assertEquals(1, merger.getTranslated());
+        assertEquals(0, merger.getObsoleted());
+    }
+
+    @Test
+    public void testFuzzy() {
+        Catalog catalog = new Catalog();
+        Message hello = BundleClassWriterTest.message(null, "Hello", "Hallo");
+        hello.getComments().addAll(Arrays.asList("#, fuzzy", "#| msgid \"Hi\""));
+        catalog.message(hello);
+
+        Catalog template = new Catalog();
+        Message newHello = BundleClassWriterTest.message(null, "Hello", "");
+        newHello.getComments().add("#, java-format");
+        template.message(newHello);
+
+        Message merged = new PoMerger(null).merge(catalog, template, "de").getMessage("Hello");
+        assertEquals(Arrays.asList("#, fuzzy, java-format", "#| msgid \"Hi\""), merged.getComments());
+        assertTrue(merged.isFuzzy());
+    }
+
+    @Test
+    public void testPluralForms() {
+        Catalog catalog = new Catalog();
+        catalog.message(header(null, "nplurals=3; plural=(n==1 ? 0 : n==2 ? 1 : 2);"));
+
+        Catalog template = new Catalog();
+        template.message(BundleClassWriterTest.plural("one dir", "{0} dirs", "", ""));
+
+        PoMerger merger = new PoMerger(null);
+        Catalog merged = merger.merge(catalog, template, "ga");
+        assertArrayEquals(new String[]{"", "", ""}, merged.getMessage("one dir").getMsgstrPlural());
+        assertEquals(1, merger.getUntranslated());
+        assertEquals(0, merger.getObsoleted());
+    }
+
+    /**
+     * msgmerge keeps the translation of a message that switched between
+     * singular and plural as fuzzy, so it counts as obsoleted.
+     */
+    @Test
+    public void testPluralSwitch() {
+        Catalog catalog = new Catalog();
+        catalog.message(BundleClassWriterTest.message(null, "one file", "eine Datei"));
+        catalog.message(BundleClassWriterTest.plural("one dir", "{0} dirs", "ein Ordner", "{0} Ordner"));
+
+        Catalog template = new Catalog();
+        template.message(BundleClassWriterTest.plural("one file", "{0} files", "", ""));
+        template.message(BundleClassWriterTest.message(null, "one dir", ""));
+
+        PoMerger merger = new PoMerger(null);
+        Catalog merged = merger.merge(catalog, template, "de");
+        assertArrayEquals(new String[]{"", ""}, merged.getMessage("one file").getMsgstrPlural());
+        assertEquals("", merged.getMessage("one dir").getMsgstr());
+        assertEquals(0, merger.getTranslated());
+        assertEquals(2, merger.getObsoleted());
+        assertEquals(2, merger.getUntranslated());
+    }
+
+    private static Message header(String creationDate, String pluralForms) {
+        StringBuilder sb = new StringBuilder("Content-Type: text/plain; charset=UTF-8\n");
+        if (creationDate != null) {
+            sb.append("POT-Creation-Date: ").append(creationDate).append('\n');
+        }
+        if (pluralForms != null) {
+            sb.append("Plural-Forms: ").append(pluralForms).append('\n');
+        }
+        return BundleClassWriterTest.message(null, "", sb.toString());
+    }
+
+}
@@ -0,0 +1,119 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PoWriterTest {
+
+    @Test
+    public void testShortValue() throws IOException {
+        assertEquals("msgid \"Hello\"\nmsgstr \"Hallo\\n\"\n\n",
+                format(BundleClassWriterTest.message(null, "Hello", "Hallo\n")));
+    }
+
+    @Test
+    public void testInnerNewline() throws IOException {
+        assertEquals("msgid \"\"\n\"a\\n\"\n\"b\"\nmsgstr \"\"\n\n",
+                format(BundleClassWriterTest.message(null, "a\nb", "")));
+    }
+
+    @Test
+    public void testWrap() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            sb.append("word").append(i).append(' ');
+        }
+        String text = sb.toString().trim();
+        String po = format(BundleClassWriterTest.message(null, text, ""));
+        assertTrue(po.startsWith("msgid \"\"\n\"word0 word1 "));
+        StringBuilder joined = new StringBuilder();
+        for (String line : po.split("\n")) {
+            assertTrue(line, line.length() <= PoWriter.PAGE_WIDTH);
+            if (line.startsWith("\"")) {
+                joined.append(line.substring(1, line.length() - 1));
+            }
+        }
+        assertEquals(text, joined.toString());
+    }
+
+    @Test
+    public void testNoWrap() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            sb.append("word ");
+        }
+        Message message = BundleClassWriterTest.message(null, sb.toString(), "");
+        message.getComments().add("#, no-wrap");
+        assertEquals("#, no-wrap\nmsgid \"" + sb + "\"\nmsgstr \"\"\n\n", format(message));
+    }
+
+    @Test
+    public void testObsolete() throws IOException {
+        Message message = BundleClassWriterTest.message("menu", "File", "Datei");
+        message.setObsolete(true);
+        assertEquals("#~ msgctxt \"menu\"\n#~ msgid \"File\"\n#~ msgstr \"Datei\"\n\n", format(message));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<Message> messages = new ArrayList<Message>();
+        messages.add(TranslationMemoryTest.header("UTF-8"));
+        Message hello = BundleClassWriterTest.message("menu", "Hello \"World\"", "Hallo\t\u00dcbersetzung\\");
+        hello.getComments().add("# translator");
+        hello.getComments().add("#: Main.java:12");
+        hello.getComments().add("#, java-format");
+        messages.add(hello);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            sb.append("word").append(i).append(i % 10 == 9 ? "\n" : " ");
+        }
+        messages.add(BundleClassWriterTest.message(null, sb.toString(), sb.toString().toUpperCase()));
+        messages.add(BundleClassWriterTest.plural("one file", "{0} files", "eine Datei", "{0} Dateien"));
+        Message obsolete = BundleClassWriterTest.message(null, "Old", "Alt");
+        obsolete.setObsolete(true);
+        messages.add(obsolete);
+
+        File file = File.createTempFile("roundtrip", ".po");
+        try {
+            PoWriter.write(file, messages);
+            List<Message> parsed = PoParser.parse(file).getMessages();
+            assertEquals(messages.size(), parsed.size());
+            for (int i = 0; i < messages.size(); i++) {
+                assertEquals(format(messages.get(i)), format(parsed.get(i)));
+            }
+            assertEquals("Hallo\t\u00dcbersetzung\\", parsed.get(1).getMsgstr());
+            assertEquals(sb.toString(), parsed.get(2).getMsgid());
+        } finally {
+            file.delete();
+        }
+    }
+
+    static String format(Message message) throws IOException {
+        StringWriter out = new StringWriter();
+        new PoWriter(out).write(message);
+        return out.toString();
+    }
+
+}
@@ -0,0 +1,101 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.cli.Commandline;
+import org.junit.Test;
+
+public class ProcessSchedulerTest {
+
+    private final Log log = new SystemStreamLog();
+
+    @Test
+    public void testInstancePerSession() {
+        Object session = new Object();
+        ProcessScheduler scheduler = ProcessScheduler.getInstance(session, 2, log);
+        assertEquals(2, scheduler.getPermits());
+        assertSame(scheduler, ProcessScheduler.getInstance(session, 0, log));
+        // the first caller determines the permits
+        assertSame(scheduler, ProcessScheduler.getInstance(session, 3, log));
+        assertEquals(2, scheduler.getPermits());
+
+        ProcessScheduler other = ProcessScheduler.getInstance(new Object(), 3, log);
+        assertNotSame(scheduler, other);
+        assertEquals(3, other.getPermits());
+    }
+
+    /**
+     * Maven clones the session for each project of a parallel build, the
+     * clones share the execution request.
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testInstancePerRequest() throws Exception {
+        MavenSession session = new MavenSession(null, new DefaultMavenExecutionRequest(),
+                new DefaultMavenExecutionResult(), new MavenProject());
+        MavenSession clone = session.clone();
+        assertNotSame(session, clone);
+        final ProcessScheduler scheduler = ProcessScheduler.getInstance(session, 2, log);
+        final ProcessScheduler other = ProcessScheduler.getInstance(clone, 2, log);
+        assertSame(scheduler, other);
+
+        // four processes of two modules with two permits need two rounds
+        List<Thread> threads = new ArrayList<Thread>();
+        for (final ProcessScheduler module : new ProcessScheduler[]{scheduler, other}) {
+            threads.add(new Thread() {
+                public void run() {
+                    List<Commandline> commands = new ArrayList<Commandline>();
+                    for (int i = 0; i < 2; i++) {
+                        Commandline cl = new Commandline();
+                        cl.setExecutable("sleep");
+                        cl.createArg().setValue("0.3");
+                        commands.add(cl);
+                    }
+                    module.executeAll(commands, log, 0);
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue((System.nanoTime() - start) / 1000000 >= 600);
+        assertTrue(scheduler.getStatistics(), scheduler.getStatistics().startsWith("4 process(es) with 2 permit(s)"));
+    }
+
+    @Test
+    public void testDefaultPermits() {
+        assertEquals(Runtime.getRuntime().availableProcessors(),
+                ProcessScheduler.getInstance(new Object(), 0, log).getPermits());
+    }
+
+}
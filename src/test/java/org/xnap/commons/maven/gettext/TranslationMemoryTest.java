@@ -0,0 +1,168 @@
+package org.xnap.commons.maven.gettext;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TranslationMemoryTest {
+
+    private final Log log = new SystemStreamLog();
+
+    private File directory;
+
+    private File poDirectory;
+
+    private File indexFile;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("memory", "");
+        directory.delete();
+        poDirectory = new File(directory, "po");
+        poDirectory.mkdirs();
+        indexFile = new File(directory, "tm.bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        write("de", BundleClassWriterTest.message(null, "Hello", "Hallo"),
+                BundleClassWriterTest.message("menu", "File", "Datei"),
+                BundleClassWriterTest.plural("one file", "{0} files", "eine Datei", "{0} Dateien"),
+                BundleClassWriterTest.message(null, "Untranslated", ""));
+        TranslationMemory memory = open();
+
+        assertEquals(3, memory.size());
+        assertArrayEquals(new String[]{"Hallo"}, memory.lookup("de", "Hello"));
+        assertArrayEquals(new String[]{"Datei"}, memory.lookup("de", "menu" + Message.CONTEXT_GLUE + "File"));
+        assertArrayEquals(new String[]{"eine Datei", "{0} Dateien"}, memory.lookup("de", "one file"));
+        assertNull(memory.lookup("de", "File"));
+        assertNull(memory.lookup("fr", "Hello"));
+        assertNull(memory.lookup("de", "Untranslated"));
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        File poFile = write("de", BundleClassWriterTest.message(null, "Hello", "Hallo"));
+        TranslationMemory memory = open();
+        assertSame(memory, open());
+
+        write("de", BundleClassWriterTest.message(null, "Hello", "Servus"));
+        poFile.setLastModified(indexFile.lastModified() + 2000);
+        TranslationMemory changed = open();
+        assertArrayEquals(new String[]{"Servus"}, changed.lookup("de", "Hello"));
+        poFile.setLastModified(indexFile.lastModified() - 2000);
+        assertSame(changed, open());
+
+        write("fr", BundleClassWriterTest.message(null, "Hello", "Bonjour"));
+        assertArrayEquals(new String[]{"Bonjour"}, open().lookup("fr", "Hello"));
+    }
+
+    @Test
+    public void testPrefill() throws IOException {
+        write("de", BundleClassWriterTest.message(null, "Hello", "Hallo"),
+                BundleClassWriterTest.message(null, "Bye", "Tsch\u00fcss"));
+        TranslationMemory memory = open();
+
+        Catalog template = new Catalog();
+        template.message(header("ASCII"));
+        template.message(BundleClassWriterTest.message(null, "Hello", ""));
+        template.message(BundleClassWriterTest.message(null, "Bye", ""));
+        template.message(BundleClassWriterTest.message(null, "New", ""));
+        Catalog catalog = new Catalog();
+        catalog.message(header("ASCII"));
+
+        // the translation of Bye cannot be encoded in ASCII
+        assertEquals(1, memory.prefill(catalog, template, "de"));
+        assertEquals("Hallo", catalog.getMessage("Hello").getMsgstr());
+        assertNull(catalog.getMessage("Bye"));
+        assertNull(catalog.getMessage("New"));
+    }
+
+    @Test
+    public void testSameBuild() throws IOException {
+        Object build = new Object();
+        File poFile = write("de", BundleClassWriterTest.message(null, "Hello", "Hallo"));
+        TranslationMemory memory = open(build);
+
+        // e.g. msgmerge of another module updating a source of the memory
+        write("de", BundleClassWriterTest.message(null, "Hello", "Servus"));
+        poFile.setLastModified(indexFile.lastModified() + 2000);
+        assertSame(memory, open(build));
+        assertArrayEquals(new String[]{"Hallo"}, open(build).lookup("de", "Hello"));
+
+        // a different set of po files is a different memory
+        write("fr", BundleClassWriterTest.message(null, "Hello", "Bonjour"));
+        TranslationMemory other = open(build);
+        assertArrayEquals(new String[]{"Bonjour"}, other.lookup("fr", "Hello"));
+        assertArrayEquals(new String[]{"Servus"}, other.lookup("de", "Hello"));
+        assertSame(other, open(build));
+
+        // the next build checks the po files again
+        poFile.setLastModified(indexFile.lastModified() + 4000);
+        TranslationMemory next = open();
+        assertNotSame(other, next);
+        poFile.setLastModified(indexFile.lastModified() - 2000);
+        assertSame(next, open());
+    }
+
+    /**
+     * Opens the memory for a new build.
+     */
+    private TranslationMemory open() throws IOException {
+        return open(new Object());
+    }
+
+    private TranslationMemory open(Object build) throws IOException {
+        return TranslationMemory.open(indexFile, new File[]{poDirectory}, build, log);
+    }
+
+    private File write(String locale, Message... messages) throws IOException {
+        List<Message> entries = new ArrayList<Message>();
+        entries.add(header("UTF-8"));
+        for (Message message : messages) {
+            entries.add(message);
+        }
+        File file = new File(poDirectory, locale + ".po");
+        PoWriter.write(file, entries);
+        return file;
+    }
+
+    static Message header(String charset) {
+        return BundleClassWriterTest.message(null, "", "Content-Type: text/plain; charset=" + charset + "\n"
+                + "Plural-Forms: nplurals=2; plural=(n != 1);\n");
+    }
+
+}